@@ -0,0 +1,86 @@
+package com.manage.recipe.benchmark;
+
+import com.manage.recipe.index.IngredientNameIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// IngredientNameIndex.suggest for the top 10, on dictionaries of generated names (one or two words made of 2 to
+// 4 syllables) used by a Zipf-like number of recipes. Queries are 64 names picked at random, cut to their first
+// three letters ("prefix"), or whole with two neighbouring letters swapped ("typo").
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AutocompleteBenchmark {
+
+    private static final String[] SYLLABLES = {"ba", "ca", "do", "fe", "gi", "la", "ma", "ne", "no", "pa", "pe",
+            "ri", "ro", "sa", "si", "ta", "to", "va", "ze", "chi", "mon", "ran", "sel", "tur", "ber", "lic"};
+
+    private static final int QUERIES = 64;
+
+    @Param({"10000", "100000"})
+    public int nameCount;
+
+    @Param({"prefix", "typo"})
+    public String queryKind;
+
+    private IngredientNameIndex ingredientNameIndex;
+
+    private String[] queries;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        Set<String> names = new LinkedHashSet<>();
+        while (names.size() < nameCount) {
+            names.add(random.nextInt(4) == 0 ? word(random) + " " + word(random) : word(random));
+        }
+        ingredientNameIndex = new IngredientNameIndex();
+        ingredientNameIndex.add(names);
+        int rank = 1;
+        for (String name : names) {
+            for (int i = 0; i < 10000 / rank; i++) {
+                ingredientNameIndex.updateRecipeCounts(Set.of(), Set.of(name));
+            }
+            rank++;
+        }
+
+        List<String> nameList = new ArrayList<>(names);
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String name = nameList.get(random.nextInt(nameList.size()));
+            if (queryKind.equals("prefix")) {
+                queries[i] = name.substring(0, 3);
+            } else {
+                int swap = 1 + random.nextInt(name.length() - 2);
+                char[] chars = name.toCharArray();
+                char c = chars[swap];
+                chars[swap] = chars[swap + 1];
+                chars[swap + 1] = c;
+                queries[i] = new String(chars);
+            }
+        }
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+    @Benchmark
+    public List<IngredientNameIndex.Suggestion> suggest() {
+        String query = queries[next];
+        next = (next + 1) % QUERIES;
+        return ingredientNameIndex.suggest(query, 10);
+    }
+}
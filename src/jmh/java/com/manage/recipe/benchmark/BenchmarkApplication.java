@@ -0,0 +1,85 @@
+package com.manage.recipe.benchmark;
+
+import com.manage.recipe.RecipeApplication;
+import com.manage.recipe.dto.BulkImportResponse;
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.RecipeRequestDTO;
+import com.manage.recipe.model.RecipeType;
+import com.manage.recipe.services.RecipeImportService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.*;
+
+// Boots the application without the web layer against a fresh in-memory H2 and seeds it with
+// a reproducible catalogue, so every benchmark fork starts from the same data.
+final class BenchmarkApplication {
+
+    static final int INGREDIENT_VOCABULARY = 200;
+
+    private static final String[] INSTRUCTION_WORDS = {
+            "chop", "slice", "dice", "mix", "stir", "whisk", "bake", "roast", "boil", "simmer", "fry", "grill",
+            "season", "serve", "garnish", "pour", "fold", "knead", "rest", "cool", "heat", "oven", "pan", "pot",
+            "minutes", "gently", "until", "golden", "tender", "sauce", "dough", "salt", "pepper", "fresh", "warm"};
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(int recipeCount) {
+        return start(recipeCount, Map.of());
+    }
+
+    // Same, with extra application properties (e.g. `spring.flyway.target`). They are passed as command line
+    // arguments, since default properties would lose to application.properties (e.g. its datasource url).
+    static ConfigurableApplicationContext start(int recipeCount, Map<String, Object> properties) {
+        SpringApplication application = new SpringApplication(RecipeApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        Map<String, Object> arguments = new HashMap<>(Map.of(
+                "spring.datasource.url", "jdbc:h2:mem:benchmark-" + UUID.randomUUID(),
+                "spring.jpa.show-sql", "false",
+                "logging.level.root", "WARN",
+                "logging.level.com.manage.recipe", "WARN"));
+        arguments.putAll(properties);
+        ConfigurableApplicationContext context = application.run(arguments.entrySet().stream()
+                .map(argument -> "--" + argument.getKey() + "=" + argument.getValue())
+                .toArray(String[]::new));
+
+        Random random = new Random(42);
+        List<RecipeRequestDTO> recipes = new ArrayList<>(recipeCount);
+        for (int i = 0; i < recipeCount; i++) {
+            recipes.add(recipe(random, "Recipe " + i));
+        }
+        BulkImportResponse response = context.getBean(RecipeImportService.class).importRecipes(recipes.iterator());
+        if (response.getFailed() > 0) {
+            throw new IllegalStateException("Seeding failed for " + response.getFailed() + " recipes");
+        }
+        return context;
+    }
+
+    // 4 to 10 ingredients out of the vocabulary and 15 to 40 words of instructions
+    static RecipeRequestDTO recipe(Random random, String name) {
+        int ingredientCount = 4 + random.nextInt(7);
+        Set<Integer> picked = new LinkedHashSet<>();
+        while (picked.size() < ingredientCount) {
+            picked.add(random.nextInt(INGREDIENT_VOCABULARY));
+        }
+        List<IngredientDTO> ingredients = new ArrayList<>(ingredientCount);
+        for (int ingredient : picked) {
+            ingredients.add(new IngredientDTO(null, ingredientName(ingredient), 1.0 + random.nextInt(500), "gram"));
+        }
+
+        int wordCount = 15 + random.nextInt(26);
+        StringJoiner instructions = new StringJoiner(" ");
+        for (int i = 0; i < wordCount; i++) {
+            instructions.add(INSTRUCTION_WORDS[random.nextInt(INSTRUCTION_WORDS.length)]);
+        }
+
+        RecipeType recipeType = RecipeType.values()[random.nextInt(RecipeType.values().length)];
+        return new RecipeRequestDTO(name, recipeType, 1 + random.nextInt(8), ingredients, instructions.toString());
+    }
+
+    static String ingredientName(int ingredient) {
+        return "ingredient-" + ingredient;
+    }
+}
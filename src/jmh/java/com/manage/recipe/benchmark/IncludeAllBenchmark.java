@@ -0,0 +1,115 @@
+package com.manage.recipe.benchmark;
+
+import com.manage.recipe.index.RecipeIndex;
+import com.manage.recipe.model.IncludeMode;
+import com.manage.recipe.repository.RecipeFilterRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// The "all of" include filter for 1 to 20 ingredients: `index` intersects the ingredient bitmaps of RecipeIndex,
+// `groupedQuery` runs the grouped HAVING count query of RecipeRepositoryImpl, `groupedSql` the same SQL through
+// JDBC, and `existsPerIngredient` the query with one EXISTS sub-query per ingredient it replaces, also through
+// JDBC. `anyQuery` is the repository's "any of" query for the same names. H2's query cache is off, as in
+// SearchQueryBenchmark.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IncludeAllBenchmark {
+
+    @Param({"20000"})
+    public int recipeCount;
+
+    @Param({"1", "2", "3", "5", "10", "20"})
+    public int includeCount;
+
+    private ConfigurableApplicationContext context;
+
+    private RecipeIndex recipeIndex;
+
+    private RecipeFilterRepository recipeFilterRepository;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private List<String> includeIngredients;
+
+    private String groupedSql;
+
+    private String existsQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(recipeCount, Map.of(
+                "spring.datasource.url", "jdbc:h2:mem:include-all-" + UUID.randomUUID() + ";QUERY_CACHE_SIZE=0"));
+        recipeIndex = context.getBean(RecipeIndex.class);
+        recipeFilterRepository = context.getBean(RecipeFilterRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        includeIngredients = new ArrayList<>(includeCount);
+        for (int i = 0; i < includeCount; i++) {
+            includeIngredients.add(BenchmarkApplication.ingredientName(i));
+        }
+        groupedSql = includeIngredients.stream()
+                .map(name -> "'" + name + "'")
+                .collect(Collectors.joining(",", "select r.id from recipe r"
+                        + " join recipe_ingredient_line l on l.recipe_id=r.id join ingredient i on i.id=l.ingredient_id"
+                        + " where i.name in (", ") group by r.id having count(distinct i.id)=" + includeCount
+                        + " order by r.id"));
+        existsQuery = includeIngredients.stream()
+                .map(name -> "exists (select 1 from recipe_ingredient_line l join ingredient i on i.id=l.ingredient_id"
+                        + " where l.recipe_id=r.id and i.name='" + name + "')")
+                .collect(Collectors.joining(" and ", "select r.id from recipe r where ", " order by r.id"));
+
+        // The "all of" filters must agree before any of them is timed
+        List<Long> expected = index();
+        if (!expected.equals(groupedQuery()) || !expected.equals(groupedSql())
+                || !expected.equals(existsPerIngredient())) {
+            throw new IllegalStateException("The include filters disagree for " + includeIngredients);
+        }
+        System.out.println();
+        System.out.println(includeCount + " ingredients: " + expected.size() + " recipes, plan:");
+        System.out.println(jdbcTemplate.queryForObject("explain " + groupedSql, String.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Long> index() {
+        return recipeIndex.filter(null, null, includeIngredients, IncludeMode.ALL, null);
+    }
+
+    @Benchmark
+    public List<Long> groupedQuery() {
+        return recipeFilterRepository.findIdsByDynamicFilters(null, null, includeIngredients, IncludeMode.ALL, null,
+                null, null, null, null);
+    }
+
+    @Benchmark
+    public List<Long> groupedSql() {
+        return jdbcTemplate.queryForList(groupedSql, Long.class);
+    }
+
+    @Benchmark
+    public List<Long> existsPerIngredient() {
+        return jdbcTemplate.queryForList(existsQuery, Long.class);
+    }
+
+    @Benchmark
+    public List<Long> anyQuery() {
+        return recipeFilterRepository.findIdsByDynamicFilters(null, null, includeIngredients, IncludeMode.ANY, null,
+                null, null, null, null);
+    }
+}
@@ -0,0 +1,70 @@
+package com.manage.recipe.benchmark;
+
+import com.manage.recipe.index.RecipeIndex;
+import com.manage.recipe.model.Ingredient;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeType;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// RecipeIndex.pantry for the first 50 matches, on catalogues up to a million recipes. The index is filled
+// directly with generated recipes (4 to 10 of the 200 benchmark ingredients each) rather than through the
+// database, which could not be seeded with that many in reasonable time. The pantry is a random subset of the
+// vocabulary. Needs a larger heap for a million recipes, e.g. -jvmArgs -Xmx3g.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PantryBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int recipeCount;
+
+    @Param({"10", "50"})
+    public int pantrySize;
+
+    @Param({"0", "2"})
+    public int maxMissing;
+
+    private RecipeIndex recipeIndex;
+
+    private List<String> pantry;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<Ingredient> vocabulary = new ArrayList<>(BenchmarkApplication.INGREDIENT_VOCABULARY);
+        for (int i = 0; i < BenchmarkApplication.INGREDIENT_VOCABULARY; i++) {
+            vocabulary.add(new Ingredient((long) i, BenchmarkApplication.ingredientName(i)));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        recipeIndex = new RecipeIndex();
+        for (long id = 1; id <= recipeCount; id++) {
+            Recipe recipe = new Recipe(id, "Recipe " + id, RecipeType.VEGAN, 2, null, null, now, now, null);
+            int ingredientCount = 4 + random.nextInt(7);
+            Set<Integer> picked = new HashSet<>();
+            while (picked.size() < ingredientCount) {
+                picked.add(random.nextInt(vocabulary.size()));
+            }
+            picked.forEach(ingredient -> recipe.addIngredient(vocabulary.get(ingredient), 1.0, "gram"));
+            recipeIndex.index(recipe);
+        }
+
+        List<String> names = new ArrayList<>(vocabulary.stream().map(Ingredient::getName).toList());
+        Collections.shuffle(names, random);
+        pantry = names.subList(0, pantrySize);
+        System.out.println();
+        System.out.println("Pantry of " + pantrySize + ", at most " + maxMissing + " missing: "
+                + recipeIndex.pantry(pantry, maxMissing, null).size() + " recipes");
+    }
+
+    @Benchmark
+    public List<Long> pantry() {
+        return recipeIndex.pantry(pantry, maxMissing, 50);
+    }
+}
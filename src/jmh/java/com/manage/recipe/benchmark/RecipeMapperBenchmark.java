@@ -0,0 +1,83 @@
+package com.manage.recipe.benchmark;
+
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.RecipeRequestDTO;
+import com.manage.recipe.dto.RecipeResponseDT0;
+import com.manage.recipe.mapper.RecipeMapper;
+import com.manage.recipe.model.Ingredient;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeType;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Maps a list response (`recipeCount` recipes of 8 ingredients each) and a single create request,
+// once with the hand-written RecipeMapper and once with a default ModelMapper, as ModelMapperConfig used to build it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeMapperBenchmark {
+
+    private static final int INGREDIENTS_PER_RECIPE = 8;
+
+    @Param({"1", "100", "1000"})
+    public int recipeCount;
+
+    private final RecipeMapper recipeMapper = new RecipeMapper();
+
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    private List<Recipe> recipes;
+
+    private RecipeRequestDTO recipeRequest;
+
+    @Setup
+    public void setUp() {
+        recipes = new ArrayList<>(recipeCount);
+        for (long id = 1; id <= recipeCount; id++) {
+            Recipe recipe = new Recipe(id, "Recipe " + id, RecipeType.VEGETARIAN, 4, null,
+                    "Mix everything and bake for 20 minutes", LocalDateTime.now(), LocalDateTime.now(), null);
+            for (int i = 0; i < INGREDIENTS_PER_RECIPE; i++) {
+                recipe.addIngredient(new Ingredient((long) i, "ingredient " + i), 10.0 * i, "gram");
+            }
+            recipes.add(recipe);
+        }
+
+        List<IngredientDTO> ingredientDTOs = new ArrayList<>(INGREDIENTS_PER_RECIPE);
+        for (int i = 0; i < INGREDIENTS_PER_RECIPE; i++) {
+            ingredientDTOs.add(new IngredientDTO(null, "ingredient " + i, 10.0 * i, "gram"));
+        }
+        recipeRequest = new RecipeRequestDTO("New recipe", RecipeType.VEGAN, 2, ingredientDTOs, "Mix and serve");
+    }
+
+    @Benchmark
+    public List<RecipeResponseDT0> responseListRecipeMapper() {
+        return recipeMapper.toResponses(recipes);
+    }
+
+    @Benchmark
+    public List<RecipeResponseDT0> responseListModelMapper() {
+        List<RecipeResponseDT0> responses = new ArrayList<>(recipes.size());
+        for (Recipe recipe : recipes) {
+            responses.add(modelMapper.map(recipe, RecipeResponseDT0.class));
+        }
+        return responses;
+    }
+
+    @Benchmark
+    public Recipe requestRecipeMapper() {
+        return recipeMapper.toEntity(recipeRequest);
+    }
+
+    @Benchmark
+    public Recipe requestModelMapper() {
+        return modelMapper.map(recipeRequest, Recipe.class);
+    }
+}
@@ -0,0 +1,102 @@
+package com.manage.recipe.benchmark;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.manage.recipe.dto.ApiResponse;
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.RecipeResponse;
+import com.manage.recipe.dto.RecipeUpdateRequestDTO;
+import com.manage.recipe.model.Ingredient;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeIngredient;
+import com.manage.recipe.repository.RecipeRepository;
+import com.manage.recipe.services.IngredientService;
+import com.manage.recipe.services.RecipeManagementService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Service-level write and list paths against a seeded in-memory H2.
+// addRecipe grows the catalogue by one recipe per invocation, so its later iterations run on a slightly larger table.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeServiceBenchmark {
+
+    @Param({"1000", "10000"})
+    public int recipeCount;
+
+    private ConfigurableApplicationContext context;
+
+    private RecipeManagementService recipeManagementService;
+
+    private IngredientService ingredientService;
+
+    private List<Long> recipeIds;
+
+    private final Random random = new Random(7);
+
+    private List<Ingredient> existingIngredients;
+
+    private List<IngredientDTO> incomingIngredients;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(recipeCount);
+        recipeManagementService = context.getBean(RecipeManagementService.class);
+        ingredientService = context.getBean(IngredientService.class);
+        recipeIds = context.getBean(RecipeRepository.class).findAll().stream().map(recipe -> recipe.getId()).toList();
+
+        // 8 ingredients of which two are updated by id, two by name, one is added and one removed
+        existingIngredients = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            existingIngredients.add(new Ingredient(1_000_000L + i, BenchmarkApplication.ingredientName(i)));
+        }
+        incomingIngredients = List.of(
+                new IngredientDTO(1_000_000L, null, 150.0, null),
+                new IngredientDTO(1_000_001L, null, null, "ml"),
+                new IngredientDTO(null, BenchmarkApplication.ingredientName(2), 50.0, "gram"),
+                new IngredientDTO(null, BenchmarkApplication.ingredientName(3).toUpperCase(), 75.0, null),
+                new IngredientDTO(null, "benchmark-new-ingredient", 1.0, "pinch"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public RecipeResponse getAllRecipes() {
+        return recipeManagementService.getAllRecipes();
+    }
+
+    @Benchmark
+    public ApiResponse<String> addRecipe() {
+        return recipeManagementService.addRecipe(BenchmarkApplication.recipe(random, "Added recipe"));
+    }
+
+    @Benchmark
+    public ApiResponse<String> updateRecipe() throws JsonMappingException {
+        RecipeUpdateRequestDTO update = new RecipeUpdateRequestDTO();
+        update.setServings(Optional.of(1 + random.nextInt(8)));
+        update.setInstructions(Optional.of("Stir gently and serve warm"));
+        return recipeManagementService.updateRecipe(recipeIds.get(random.nextInt(recipeIds.size())), update);
+    }
+
+    @Benchmark
+    public List<RecipeIngredient> mergeIngredients() {
+        Recipe recipe = new Recipe();
+        for (Ingredient ingredient : existingIngredients) {
+            recipe.addIngredient(ingredient, 100.0, "gram");
+        }
+        return ingredientService.mergeIngredients(recipe, incomingIngredients,
+                List.of(BenchmarkApplication.ingredientName(7)));
+    }
+}
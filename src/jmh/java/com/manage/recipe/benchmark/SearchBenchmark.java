@@ -0,0 +1,71 @@
+package com.manage.recipe.benchmark;
+
+import com.manage.recipe.cache.SearchResultCache;
+import com.manage.recipe.dto.RecipeResponse;
+import com.manage.recipe.model.RecipeType;
+import com.manage.recipe.services.SearchService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// SearchService.filterRecipes for each filter on its own and in combination, against a seeded in-memory H2.
+// The search result cache is invalidated before every call so the indexes are measured, not the cache;
+// recipes are still hydrated through the recipe cache as they are in production.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"1000", "10000"})
+    public int recipeCount;
+
+    @Param({"none", "type", "servings", "include", "exclude", "instructions", "type+servings",
+            "include+exclude", "all"})
+    public String filters;
+
+    private ConfigurableApplicationContext context;
+
+    private SearchService searchService;
+
+    private SearchResultCache searchResultCache;
+
+    private RecipeType recipeType;
+    private Integer servings;
+    private List<String> includeIngredients;
+    private List<String> excludeIngredients;
+    private String searchInstructions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(recipeCount);
+        searchService = context.getBean(SearchService.class);
+        searchResultCache = context.getBean(SearchResultCache.class);
+
+        boolean all = filters.equals("all");
+        List<String> selected = List.of(filters.split("\\+"));
+        recipeType = all || selected.contains("type") ? RecipeType.VEGAN : null;
+        servings = all || selected.contains("servings") ? 4 : null;
+        includeIngredients = all || selected.contains("include")
+                ? List.of(BenchmarkApplication.ingredientName(1), BenchmarkApplication.ingredientName(2)) : null;
+        excludeIngredients = all || selected.contains("exclude")
+                ? List.of(BenchmarkApplication.ingredientName(3)) : null;
+        searchInstructions = all || selected.contains("instructions") ? "simmer sauce" : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public RecipeResponse filterRecipes() {
+        searchResultCache.invalidateAll();
+        return searchService.filterRecipes(recipeType, servings, includeIngredients, excludeIngredients,
+                searchInstructions);
+    }
+}
@@ -0,0 +1,179 @@
+package com.manage.recipe.benchmark;
+
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.RecipeRequestDTO;
+import com.manage.recipe.model.IncludeMode;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeType;
+import com.manage.recipe.repository.RecipeFilterRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// The database search path that SearchService falls back to, against a seeded H2 migrated up to `schemaVersion`:
+// 2 has no search index, 3 adds it. `idQuery` runs the repository's id query for every match (the one the
+// index is for), `firstPage` the same query with the default limit of 50, and `findByDynamicFilters` also
+// loads every matching recipe. The plan H2 chooses for the id query, as Hibernate sends it, is printed once per
+// trial. H2's per-session query cache is off, so every call parses, plans and runs the query like a new request
+// would.
+// `storage=mem` seeds an in-memory database through the bulk import. `storage=file` uses a new H2 file under
+// target/jmh-data with the settings of the `persistent` profile (64 MB page cache), seeded with plain JDBC
+// batches once the application is up, so the start-up index warm-up does not load the catalogue; for large
+// catalogues run it with `-p storage=file -p recipeCount=1000000` and without findByDynamicFilters, which loads
+// a third of them.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchQueryBenchmark {
+
+    private static final int FILE_SEED_BATCH_SIZE = 10000;
+
+    @Param({"10000"})
+    public int recipeCount;
+
+    @Param({"mem", "file"})
+    public String storage;
+
+    @Param({"2", "3"})
+    public String schemaVersion;
+
+    @Param({"type", "servings", "type+servings", "include", "exclude", "include+exclude"})
+    public String filters;
+
+    private ConfigurableApplicationContext context;
+
+    private RecipeFilterRepository recipeFilterRepository;
+
+    private RecipeType recipeType;
+    private Integer servings;
+    private List<String> includeIngredients;
+    private List<String> excludeIngredients;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (storage.equals("file")) {
+            File dataFile = new File("target/jmh-data/search-v" + schemaVersion + "-" + recipeCount);
+            new File(dataFile.getPath() + ".mv.db").delete();
+            // The `persistent` profile's URL, with the query cache off as for the in-memory runs
+            context = BenchmarkApplication.start(0, Map.of("spring.flyway.target", schemaVersion,
+                    "spring.datasource.url", "jdbc:h2:file:" + dataFile.getAbsolutePath()
+                            + ";CACHE_SIZE=65536;DB_CLOSE_ON_EXIT=FALSE;QUERY_CACHE_SIZE=0"));
+            seedWithJdbc(context.getBean(JdbcTemplate.class));
+        } else {
+            context = BenchmarkApplication.start(recipeCount, Map.of("spring.flyway.target", schemaVersion,
+                    "spring.datasource.url", "jdbc:h2:mem:search-" + UUID.randomUUID() + ";QUERY_CACHE_SIZE=0"));
+        }
+        recipeFilterRepository = context.getBean(RecipeFilterRepository.class);
+
+        List<String> selected = List.of(filters.split("\\+"));
+        recipeType = selected.contains("type") ? RecipeType.VEGAN : null;
+        servings = selected.contains("servings") ? 4 : null;
+        includeIngredients = selected.contains("include")
+                ? List.of(BenchmarkApplication.ingredientName(1), BenchmarkApplication.ingredientName(2)) : null;
+        excludeIngredients = selected.contains("exclude")
+                ? List.of(BenchmarkApplication.ingredientName(3)) : null;
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        String idQuery = captureIdQuery(jdbcTemplate);
+        // H2 plans a statement when it is prepared, so the plan does not depend on the values bound later
+        String plan = jdbcTemplate.query(connection -> connection.prepareStatement("explain " + idQuery),
+                resultSet -> resultSet.next() ? resultSet.getString(1) : null);
+        System.out.println();
+        System.out.println("Plan for schema " + schemaVersion + ", " + filters + ":");
+        System.out.println(plan);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Long> idQuery() {
+        return recipeFilterRepository.findIdsByDynamicFilters(recipeType, servings, includeIngredients,
+                IncludeMode.ANY, excludeIngredients, null, null, null, null);
+    }
+
+    @Benchmark
+    public List<Long> firstPage() {
+        return recipeFilterRepository.findIdsByDynamicFilters(recipeType, servings, includeIngredients,
+                IncludeMode.ANY, excludeIngredients, null, null, null, 50);
+    }
+
+    @Benchmark
+    public List<Recipe> findByDynamicFilters() {
+        return recipeFilterRepository.findByDynamicFilters(recipeType, servings, includeIngredients,
+                excludeIngredients, null);
+    }
+
+    // Inserts the same generated catalogue as the bulk import would, with explicit ids in JDBC batches: the
+    // import takes hours for a million recipes. Sequences are moved past the ids, then statistics are gathered.
+    private void seedWithJdbc(JdbcTemplate jdbcTemplate) {
+        List<Object[]> ingredients = new ArrayList<>();
+        Map<String, Long> ingredientIds = new HashMap<>();
+        for (int i = 0; i < BenchmarkApplication.INGREDIENT_VOCABULARY; i++) {
+            ingredients.add(new Object[]{i + 1L, BenchmarkApplication.ingredientName(i)});
+            ingredientIds.put(BenchmarkApplication.ingredientName(i), i + 1L);
+        }
+        jdbcTemplate.batchUpdate("insert into ingredient (id, name) values (?, ?)", ingredients);
+
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> recipes = new ArrayList<>(FILE_SEED_BATCH_SIZE);
+        List<Object[]> lines = new ArrayList<>(FILE_SEED_BATCH_SIZE * 10);
+        long lineId = 0;
+        for (long id = 1; id <= recipeCount; id++) {
+            RecipeRequestDTO recipe = BenchmarkApplication.recipe(random, "Recipe " + (id - 1));
+            recipes.add(new Object[]{id, recipe.getName(), recipe.getRecipeType().name(), recipe.getServings(),
+                    recipe.getInstructions(), now, now});
+            for (IngredientDTO ingredient : recipe.getIngredients()) {
+                lines.add(new Object[]{++lineId, id, ingredientIds.get(ingredient.getName()), ingredient.getQuantity(),
+                        ingredient.getUnit()});
+            }
+            if (recipes.size() == FILE_SEED_BATCH_SIZE || id == recipeCount) {
+                jdbcTemplate.batchUpdate("insert into recipe (id, name, recipe_type, servings, instructions, "
+                        + "created_at, updated_at, version) values (?, ?, ?, ?, ?, ?, ?, 0)", recipes);
+                jdbcTemplate.batchUpdate("insert into recipe_ingredient_line (id, recipe_id, ingredient_id, "
+                        + "quantity, unit) values (?, ?, ?, ?, ?)", lines);
+                recipes.clear();
+                lines.clear();
+            }
+        }
+        restartAfter(jdbcTemplate, "ingredient_seq", BenchmarkApplication.INGREDIENT_VOCABULARY);
+        restartAfter(jdbcTemplate, "recipe_seq", recipeCount);
+        restartAfter(jdbcTemplate, "recipe_ingredient_line_seq", lineId);
+        jdbcTemplate.execute("analyze");
+    }
+
+    // Hibernate hands out the 50 ids up to each sequence value, so the next value has to be a block past `lastId`
+    private static void restartAfter(JdbcTemplate jdbcTemplate, String sequence, long lastId) {
+        jdbcTemplate.execute("alter sequence " + sequence + " restart with " + (lastId + 51));
+    }
+
+    // The id query as Hibernate sends it, recorded by H2's query statistics while idQuery runs once. The start-up
+    // warm-up and seeding are finished by then, so it is the only query in the statistics.
+    private String captureIdQuery(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("set query_statistics true");
+        idQuery();
+        List<String> statements = jdbcTemplate.queryForList("select sql_statement from information_schema.query_statistics "
+                + "where sql_statement like 'select%' and sql_statement not like '%query_statistics%'", String.class);
+        jdbcTemplate.execute("set query_statistics false");
+        if (statements.size() != 1) {
+            throw new IllegalStateException("Expected the id query alone, captured " + statements);
+        }
+        return statements.get(0);
+    }
+}
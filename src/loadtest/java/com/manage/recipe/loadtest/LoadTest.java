@@ -0,0 +1,331 @@
+package com.manage.recipe.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-loop load generator for a running instance of the recipe API.
+// Requests are started at a fixed rate whatever the response times are, and each latency is measured from the
+// moment the request was due, not from when it was actually sent, so a stalled server is not hidden by a
+// stalled client (coordinated omission). Latencies are recorded per endpoint in HdrHistograms.
+//
+// mvn -Ploadtest test-compile exec:java -Dloadtest.rate=1000 -Dloadtest.duration=30
+public class LoadTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String[] RECIPE_TYPES = {"VEGETARIAN", "NON_VEGETARIAN", "VEGAN"};
+
+    private static final String[] INSTRUCTION_WORDS = {
+            "chop", "slice", "dice", "mix", "stir", "whisk", "bake", "roast", "boil", "simmer", "fry", "grill",
+            "season", "serve", "garnish", "pour", "fold", "knead", "rest", "cool", "heat", "oven", "pan", "pot",
+            "minutes", "gently", "until", "golden", "tender", "sauce", "dough", "salt", "pepper", "fresh", "warm"};
+
+    private static final int INGREDIENT_VOCABULARY = 200;
+
+    // The operations of the mix: reads and searches are GETs, writes are POST (create) and PATCH (update).
+    // ALL fetches the whole catalogue and is not part of the default mix.
+    enum Endpoint {
+        READ("GET /api/recipes/{id}"),
+        ALL("GET /api/recipes"),
+        LIST("GET /api/recipes?limit=50"),
+        SEARCH("GET /api/recipes/search"),
+        CREATE("POST /api/recipes"),
+        UPDATE("PATCH /api/recipes/{id}");
+
+        final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final class Stats {
+        final Histogram latencies = new ConcurrentHistogram(3);
+        final AtomicLong errors = new AtomicLong();
+    }
+
+    private final String baseUrl;
+    private final int rate;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int seedRecipes;
+    private final int maxInFlight;
+    private final Map<Endpoint, Integer> mix;
+    private final Path report;
+
+    private final HttpClient httpClient;
+    private final Map<Endpoint, Stats> stats = new EnumMap<>(Endpoint.class);
+    private final List<Long> recipeIds = new CopyOnWriteArrayList<>();
+    private final Random random = new Random(42);
+    private final AtomicLong lastCompletion = new AtomicLong();
+    private long measureFrom;
+
+    LoadTest(Properties properties) {
+        baseUrl = properties.getProperty("loadtest.baseUrl", "http://localhost:8080");
+        rate = Integer.parseInt(properties.getProperty("loadtest.rate", "1000"));
+        durationSeconds = Integer.parseInt(properties.getProperty("loadtest.duration", "30"));
+        warmupSeconds = Integer.parseInt(properties.getProperty("loadtest.warmup", "10"));
+        seedRecipes = Integer.parseInt(properties.getProperty("loadtest.seed", "1000"));
+        maxInFlight = Integer.parseInt(properties.getProperty("loadtest.maxInFlight", "2000"));
+        mix = parseMix(properties.getProperty("loadtest.mix", "read=50,list=5,search=35,create=5,update=5"));
+        report = Path.of(properties.getProperty("loadtest.report", "target/loadtest-report.md"));
+
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2),
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "loadtest-http");
+                            thread.setDaemon(true);
+                            return thread;
+                        }))
+                .build();
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest(System.getProperties()).run();
+    }
+
+    // e.g. "read=50,search=40,create=10"; endpoints left out get no traffic
+    static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String part : mix.split(",")) {
+            String[] entry = part.trim().split("=");
+            weights.put(Endpoint.valueOf(entry[0].trim().toUpperCase()), Integer.parseInt(entry[1].trim()));
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The load mix needs at least one positive weight: " + mix);
+        }
+        return weights;
+    }
+
+    void run() throws Exception {
+        seed();
+        System.out.printf("Running %d req/s for %ds (+%ds warm-up) against %s, mix %s%n",
+                rate, durationSeconds, warmupSeconds, baseUrl, mix);
+
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        for (long i = 0; ; i++) {
+            long due = start + i * intervalNanos;
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = pickEndpoint();
+            boolean measured = due >= measureFrom;
+            inFlight.acquire();
+            httpClient.sendAsync(request(endpoint), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        long completed = System.nanoTime();
+                        inFlight.release();
+                        if (!measured) {
+                            return;
+                        }
+                        lastCompletion.accumulateAndGet(completed, Math::max);
+                        Stats endpointStats = stats.get(endpoint);
+                        endpointStats.latencies.recordValue(completed - due);
+                        if (failure != null || response.statusCode() >= 400) {
+                            endpointStats.errors.incrementAndGet();
+                        }
+                    });
+        }
+        // Let the requests still in flight finish so they are counted
+        if (!inFlight.tryAcquire(maxInFlight, 60, TimeUnit.SECONDS)) {
+            System.out.println("Some requests did not complete within 60s after the run");
+        }
+
+        String text = report();
+        System.out.println(text);
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        Files.writeString(report, text);
+        System.out.println("Report written to " + report.toAbsolutePath());
+    }
+
+    // Loads `loadtest.seed` recipes through the bulk endpoint, and remembers their ids for reads and updates
+    private void seed() throws IOException, InterruptedException {
+        if (seedRecipes > 0) {
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < seedRecipes; i++) {
+                body.append(OBJECT_MAPPER.writeValueAsString(recipe("Load test recipe " + i))).append('\n');
+            }
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/recipes/bulk"))
+                            .header("Content-Type", "application/x-ndjson")
+                            .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            for (JsonNode result : OBJECT_MAPPER.readTree(response.body()).path("results")) {
+                if (result.path("success").asBoolean()) {
+                    recipeIds.add(result.path("id").asLong());
+                }
+            }
+        } else {
+            HttpResponse<String> response = httpClient.send(
+                    HttpRequest.newBuilder(URI.create(baseUrl + "/api/recipes?limit=500")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            for (JsonNode recipe : OBJECT_MAPPER.readTree(response.body()).path("recipes")) {
+                recipeIds.add(recipe.path("id").asLong());
+            }
+        }
+        if (recipeIds.isEmpty()) {
+            throw new IllegalStateException("No recipes available to read or update at " + baseUrl);
+        }
+        System.out.printf("Using %d recipes%n", recipeIds.size());
+    }
+
+    private Endpoint pickEndpoint() {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = random.nextInt(total);
+        for (Map.Entry<Endpoint, Integer> entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    private HttpRequest request(Endpoint endpoint) throws IOException {
+        Long recipeId = recipeIds.get(random.nextInt(recipeIds.size()));
+        return switch (endpoint) {
+            case READ -> get("/api/recipes/" + recipeId);
+            case ALL -> get("/api/recipes");
+            case LIST -> get("/api/recipes?limit=50&after=" + (recipeId - 1));
+            case SEARCH -> get("/api/recipes/search?" + searchQuery());
+            case CREATE -> json("/api/recipes", "POST", recipe("Created by load test"));
+            case UPDATE -> json("/api/recipes/" + recipeId, "PATCH", Map.of("servings", 1 + random.nextInt(8)));
+        };
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private HttpRequest json(String path, String method, Object body) throws IOException {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(OBJECT_MAPPER.writeValueAsString(body)))
+                .build();
+    }
+
+    // One to three of the search filters, picked at random
+    private String searchQuery() {
+        List<String> parameters = new ArrayList<>();
+        while (parameters.isEmpty()) {
+            if (random.nextInt(3) == 0) {
+                parameters.add("recipeType=" + RECIPE_TYPES[random.nextInt(RECIPE_TYPES.length)]);
+            }
+            if (random.nextInt(3) == 0) {
+                parameters.add("servings=" + (1 + random.nextInt(8)));
+            }
+            if (random.nextInt(3) == 0) {
+                parameters.add("includeIngredients=" + ingredientName(random.nextInt(INGREDIENT_VOCABULARY)));
+            }
+            if (random.nextInt(4) == 0) {
+                parameters.add("excludeIngredients=" + ingredientName(random.nextInt(INGREDIENT_VOCABULARY)));
+            }
+            if (random.nextInt(3) == 0) {
+                String words = INSTRUCTION_WORDS[random.nextInt(INSTRUCTION_WORDS.length)];
+                parameters.add("searchInstructions=" + URLEncoder.encode(words, StandardCharsets.UTF_8));
+            }
+        }
+        return String.join("&", parameters);
+    }
+
+    // Same shape of data as the JMH benchmarks: 4 to 10 ingredients out of 200, 15 to 40 words of instructions
+    private Map<String, Object> recipe(String name) {
+        int ingredientCount = 4 + random.nextInt(7);
+        Set<Integer> picked = new LinkedHashSet<>();
+        while (picked.size() < ingredientCount) {
+            picked.add(random.nextInt(INGREDIENT_VOCABULARY));
+        }
+        List<Map<String, Object>> ingredients = new ArrayList<>();
+        for (int ingredient : picked) {
+            ingredients.add(Map.of("name", ingredientName(ingredient), "quantity", 1.0 + random.nextInt(500),
+                    "unit", "gram"));
+        }
+        StringJoiner instructions = new StringJoiner(" ");
+        for (int i = 15 + random.nextInt(26); i > 0; i--) {
+            instructions.add(INSTRUCTION_WORDS[random.nextInt(INSTRUCTION_WORDS.length)]);
+        }
+        return Map.of("name", name,
+                "recipeType", RECIPE_TYPES[random.nextInt(RECIPE_TYPES.length)],
+                "servings", 1 + random.nextInt(8),
+                "ingredients", ingredients,
+                "instructions", instructions.toString());
+    }
+
+    private static String ingredientName(int ingredient) {
+        return "ingredient-" + ingredient;
+    }
+
+    private String report() {
+        StringBuilder text = new StringBuilder();
+        text.append("# Load test report\n\n")
+                .append("- Date: ").append(LocalDateTime.now().withNano(0)).append('\n')
+                .append("- Target: ").append(baseUrl).append('\n')
+                .append("- Offered rate: ").append(rate).append(" req/s for ").append(durationSeconds)
+                .append("s after ").append(warmupSeconds).append("s warm-up\n")
+                .append("- Mix: ").append(mix).append('\n')
+                .append("- Client: ").append(Runtime.getRuntime().availableProcessors()).append(" CPUs, Java ")
+                .append(System.getProperty("java.version")).append("\n\n")
+                .append("Latencies in ms, measured from when each request was due. Throughput counts completed\n")
+                .append("requests over the time from the end of the warm-up to the last completion.\n\n")
+                .append("| Endpoint | Requests | Errors | Throughput (req/s) | p50 | p99 | p99.9 | max |\n")
+                .append("|---|---:|---:|---:|---:|---:|---:|---:|\n");
+
+        Histogram all = new Histogram(3);
+        long allErrors = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            Stats endpointStats = stats.get(endpoint);
+            if (endpointStats.latencies.getTotalCount() == 0) {
+                continue;
+            }
+            all.add(endpointStats.latencies);
+            allErrors += endpointStats.errors.get();
+            appendRow(text, endpoint.label, endpointStats.latencies, endpointStats.errors.get());
+        }
+        appendRow(text, "**All**", all, allErrors);
+        return text.toString();
+    }
+
+    private void appendRow(StringBuilder text, String label, Histogram latencies, long errors) {
+        double seconds = Math.max(lastCompletion.get() - measureFrom, 1) / 1_000_000_000.0;
+        text.append(String.format(Locale.ROOT, "| %s | %d | %d | %.1f | %.2f | %.2f | %.2f | %.2f |%n",
+                label, latencies.getTotalCount(), errors, latencies.getTotalCount() / seconds,
+                millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+                millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue())));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,125 @@
+package com.manage.recipe.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.manage.recipe.dto.CacheStatsDTO;
+import com.manage.recipe.dto.RecipeResponseDT0;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Read-through cache of rendered single-recipe responses, bounded by size and time since loading.
+// Ingredients never change once created and quantities belong to one recipe, so an update only ever
+// evicts the recipe it changed.
+@Component
+public class RecipeCache {
+
+    private final Cache<Long, RecipeResponseDT0> cache;
+
+    // Loads in flight per recipe, with the number of evictions of that recipe seen since the first of them started.
+    // Only ever holds the recipes being loaded; both fields are only accessed within the map's compute functions.
+    private final Map<Long, LoadsInFlight> loadsInFlight = new ConcurrentHashMap<>();
+
+    private static final class LoadsInFlight {
+        int loads;
+        long evictions;
+    }
+
+    public RecipeCache(@Value("${recipe.cache.maximum-size:10000}") long maximumSize,
+                       @Value("${recipe.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    // Returns the cached recipe, or loads, caches and returns it. Exceptions from the loader are not cached.
+    // The loader runs outside the cache's locks: it may wait for a database connection, and holding a lock
+    // meanwhile would block unrelated keys and every thread that already holds a connection.
+    public RecipeResponseDT0 get(Long recipeId, Function<Long, RecipeResponseDT0> loader) {
+        RecipeResponseDT0 cached = cache.getIfPresent(recipeId);
+        if (cached != null) {
+            return cached;
+        }
+        long evictions = startLoad(recipeId);
+        RecipeResponseDT0 recipe = null;
+        try {
+            recipe = loader.apply(recipeId);
+            return recipe;
+        } finally {
+            finishLoad(recipeId, recipe, evictions);
+        }
+    }
+
+    // Returns the recipes that exist among the given ids, loading all missing ones with a single loader call
+    public Map<Long, RecipeResponseDT0> getAll(Collection<Long> recipeIds,
+                                               Function<Set<? extends Long>, Map<Long, RecipeResponseDT0>> loader) {
+        Map<Long, RecipeResponseDT0> recipes = new HashMap<>(cache.getAllPresent(recipeIds));
+        Set<Long> missingIds = new LinkedHashSet<>(recipeIds);
+        missingIds.removeAll(recipes.keySet());
+        if (missingIds.isEmpty()) {
+            return recipes;
+        }
+        Map<Long, Long> evictions = new HashMap<>();
+        missingIds.forEach(recipeId -> evictions.put(recipeId, startLoad(recipeId)));
+        Map<Long, RecipeResponseDT0> loaded = Map.of();
+        try {
+            loaded = loader.apply(missingIds);
+            recipes.putAll(loaded);
+            return recipes;
+        } finally {
+            for (Long recipeId : missingIds) {
+                finishLoad(recipeId, loaded.get(recipeId), evictions.get(recipeId));
+            }
+        }
+    }
+
+    public void evict(Long recipeId) {
+        loadsInFlight.computeIfPresent(recipeId, (id, inFlight) -> {
+            inFlight.evictions++;
+            return inFlight;
+        });
+        cache.invalidate(recipeId);
+    }
+
+    public CacheStatsDTO stats() {
+        CacheStats stats = cache.stats();
+        return new CacheStatsDTO(cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate());
+    }
+
+    // Registers a load of the recipe and returns the evictions of it seen so far
+    private long startLoad(Long recipeId) {
+        long[] evictions = new long[1];
+        loadsInFlight.compute(recipeId, (id, inFlight) -> {
+            if (inFlight == null) {
+                inFlight = new LoadsInFlight();
+            }
+            inFlight.loads++;
+            evictions[0] = inFlight.evictions;
+            return inFlight;
+        });
+        return evictions[0];
+    }
+
+    // Caches the loaded recipe (null when the load failed or found nothing) unless the recipe was evicted since
+    // its load started, as it may then be stale. Evictions of other recipes do not matter.
+    private void finishLoad(Long recipeId, RecipeResponseDT0 recipe, long evictionsAtStart) {
+        loadsInFlight.computeIfPresent(recipeId, (id, inFlight) -> {
+            if (recipe != null && inFlight.evictions == evictionsAtStart) {
+                cache.asMap().putIfAbsent(id, recipe);
+            }
+            return --inFlight.loads == 0 ? null : inFlight;
+        });
+    }
+}
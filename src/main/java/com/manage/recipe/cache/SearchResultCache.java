@@ -0,0 +1,98 @@
+package com.manage.recipe.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.manage.recipe.model.IncludeMode;
+import com.manage.recipe.model.RecipeSort;
+import com.manage.recipe.model.RecipeType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caches the ids matched by a search, keyed by the normalised filter combination.
+// Every write bumps a generation counter and entries computed under an older generation are ignored,
+// so one counter increment invalidates all cached searches without scanning the cache.
+@Component
+public class SearchResultCache {
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Cache<SearchKey, CachedResult> cache;
+
+    // Canonical form of a search: ingredient lists are lower-cased, de-duplicated and sorted, "all of" one
+    // ingredient is the same as "any of" it, the instruction text is lower-cased with whitespace collapsed,
+    // and a sort without direction gets its default
+    public record SearchKey(RecipeType recipeType, Integer servings, List<String> includeIngredients,
+                            IncludeMode includeMode, List<String> excludeIngredients, String searchInstructions,
+                            RecipeSort sort, Sort.Direction direction, Integer limit) {
+
+        public static SearchKey of(RecipeType recipeType, Integer servings, List<String> includeIngredients,
+                                   List<String> excludeIngredients, String searchInstructions) {
+            return of(recipeType, servings, includeIngredients, IncludeMode.ANY, excludeIngredients,
+                    searchInstructions, null, null, null);
+        }
+
+        public static SearchKey of(RecipeType recipeType, Integer servings, List<String> includeIngredients,
+                                   IncludeMode includeMode, List<String> excludeIngredients,
+                                   String searchInstructions, RecipeSort sort, Sort.Direction direction,
+                                   Integer limit) {
+            List<String> includes = normalise(includeIngredients);
+            IncludeMode mode = includeMode == IncludeMode.ALL && includes.size() > 1 ? IncludeMode.ALL : IncludeMode.ANY;
+            Sort.Direction sortDirection = sort == null ? null
+                    : direction != null ? direction : sort.getDefaultDirection();
+            return new SearchKey(recipeType, servings, includes, mode, normalise(excludeIngredients),
+                    normalise(searchInstructions), sort, sortDirection, limit);
+        }
+
+        private static List<String> normalise(List<String> ingredientNames) {
+            if (ingredientNames == null) {
+                return List.of();
+            }
+            return ingredientNames.stream().map(String::toLowerCase).distinct().sorted().toList();
+        }
+
+        private static String normalise(String text) {
+            if (text == null || text.isBlank()) {
+                return "";
+            }
+            return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // The ids of a search (cut to its limit) and how many recipes matched before the limit
+    public record CachedResult(long generation, List<Long> recipeIds, int totalMatches) {
+    }
+
+    public SearchResultCache(@Value("${recipe.search-cache.maximum-size:10000}") long maximumSize) {
+        this.cache = Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    // Read before running a search, and pass to put() with its result
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    // Returns the cached result, or null when the search is not cached or was cached before the last write
+    public CachedResult get(SearchKey key) {
+        CachedResult result = cache.getIfPresent(key);
+        if (result == null || result.generation() != generation.get()) {
+            return null;
+        }
+        return result;
+    }
+
+    // Results computed before a concurrent write carry the older generation and are never served
+    public void put(SearchKey key, long searchGeneration, List<Long> recipeIds, int totalMatches) {
+        if (searchGeneration == generation.get()) {
+            cache.put(key, new CachedResult(searchGeneration, List.copyOf(recipeIds), totalMatches));
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+    }
+}
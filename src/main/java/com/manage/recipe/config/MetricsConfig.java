@@ -0,0 +1,32 @@
+package com.manage.recipe.config;
+
+import com.manage.recipe.metrics.SqlStatementCounter;
+import com.manage.recipe.metrics.SqlStatementMetricsFilter;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    // Enables @Timed on the services
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    // Lets Hibernate report every statement it prepares to the per-request counter
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer(SqlStatementCounter sqlStatementCounter) {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlStatementCounter);
+    }
+
+    // Declared here rather than scanned, so web slice tests without the JPA layer do not pick it up
+    @Bean
+    public SqlStatementMetricsFilter sqlStatementMetricsFilter() {
+        return new SqlStatementMetricsFilter();
+    }
+}
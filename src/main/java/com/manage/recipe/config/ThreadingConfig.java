@@ -0,0 +1,36 @@
+package com.manage.recipe.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+
+// Request handling runs on virtual threads when `spring.threads.virtual.enabled` is true and the application
+// runs on Java 21 or later (the `virtual-threads` profile). Spring Boot then configures Tomcat, the async
+// executor used by streaming responses, and so everything called from a request, to use virtual threads.
+@Configuration
+public class ThreadingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    // Boot silently falls back to platform threads on older runtimes, so say which mode is actually in use
+    @EventListener(ApplicationReadyEvent.class)
+    public void logThreadingMode(ApplicationReadyEvent event) {
+        Environment environment = event.getApplicationContext().getEnvironment();
+        boolean requested = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            logger.info("Request threads: virtual, database pool size={}",
+                    environment.getProperty("spring.datasource.hikari.maximum-pool-size"));
+        } else if (requested) {
+            logger.warn("Virtual threads requested but Java {} does not support them, using platform threads",
+                    Runtime.version().feature());
+        } else {
+            logger.info("Request threads: platform, max={}, database pool size={}",
+                    environment.getProperty("server.tomcat.threads.max", "200"),
+                    environment.getProperty("spring.datasource.hikari.maximum-pool-size"));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.manage.recipe.controllers;
+
+import com.manage.recipe.dto.IngredientSuggestionDTO;
+import com.manage.recipe.services.IngredientService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/ingredients")
+public class IngredientController {
+
+    private static final int DEFAULT_SUGGESTIONS = 10;
+
+    @Autowired
+    private IngredientService ingredientService;
+
+    // Method to suggest ingredient names for a partly typed or misspelt name, most used first
+    @GetMapping("/autocomplete")
+    public List<IngredientSuggestionDTO> autocomplete(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "" + DEFAULT_SUGGESTIONS) int limit) {
+        return ingredientService.suggestIngredients(q, limit);
+    }
+}
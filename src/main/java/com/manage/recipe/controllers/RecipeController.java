@@ -1,35 +1,95 @@
 package com.manage.recipe.controllers;
 
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.manage.recipe.dto.*;
+import com.manage.recipe.exception.PreconditionFailedException;
+import com.manage.recipe.model.IncludeMode;
+import com.manage.recipe.model.RecipeSort;
 import com.manage.recipe.model.RecipeType;
+import com.manage.recipe.services.RecipeImportService;
 import com.manage.recipe.services.RecipeManagementService;
+import com.manage.recipe.services.RecipeStreamService;
 import com.manage.recipe.services.SearchService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/recipes")
 public class RecipeController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
     @Autowired
     private RecipeManagementService recipeManagementService;
 
     @Autowired
     private SearchService searchService;
 
+    @Autowired
+    private RecipeImportService recipeImportService;
+
+    @Autowired
+    private RecipeStreamService recipeStreamService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     // Method to fetch details of all recipes
+    // When `after` or `limit` is given, a single keyset page is returned instead of the whole catalogue
     @GetMapping()
-    public ResponseEntity<RecipeResponse> getAllRecipes(){
+    public ResponseEntity<RecipeResponse> getAllRecipes(@RequestParam(required = false) Long after,
+                                                        @RequestParam(required = false) Integer limit){
+        if (after != null || limit != null) {
+            int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+            return new ResponseEntity<>(recipeManagementService.getRecipesPage(after, pageSize), HttpStatus.OK);
+        }
         return new ResponseEntity<>(recipeManagementService.getAllRecipes() , HttpStatus.OK) ;
     }
 
+    // Method to stream all recipes as newline-delimited JSON, one recipe per line as it is loaded.
+    // Spring MVC requests the next recipe only once the previous one is written, and cancels the stream
+    // when the client disconnects.
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<RecipeResponseDT0> streamRecipes() {
+        return recipeStreamService.streamRecipes();
+    }
+
+    // Method to fetch a single recipe by its id
+    // The ETag is the recipe's version, to send back as If-Match when updating it
+    @GetMapping("/{id}")
+    public ResponseEntity<RecipeResponseDT0> getRecipe(@PathVariable Long id) {
+        RecipeResponseDT0 recipe = recipeManagementService.getRecipe(id);
+        return withETag(ResponseEntity.ok(), recipe.getVersion()).body(recipe);
+    }
+
+    // Method to report hit/miss/eviction counters of the single-recipe cache
+    @GetMapping("/cache/stats")
+    public ResponseEntity<CacheStatsDTO> getRecipeCacheStats() {
+        return ResponseEntity.ok(recipeManagementService.getRecipeCacheStats());
+    }
+
+    // Method to export all recipes as newline-delimited JSON, streamed straight to the response
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportRecipes() {
+        StreamingResponseBody body = outputStream -> recipeManagementService.exportRecipes(outputStream);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     // Method to add a recipe in the database
     @PostMapping()
     public ResponseEntity<ApiResponse<String>> addRecipe(@RequestBody @Valid RecipeRequestDTO recipeRequest) {
@@ -37,12 +97,26 @@ public class RecipeController {
         return ResponseEntity.status(HttpStatus.CREATED).body(addedResponse);
     }
 
+    // Method to import many recipes at once, given as a JSON array or as newline-delimited JSON.
+    // Each recipe is validated on its own and the response reports success or failure per recipe, also when a
+    // malformed recipe stops the import part way (the recipes before it are kept).
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkImportResponse> importRecipes(InputStream requestBody) throws IOException {
+        try (MappingIterator<RecipeRequestDTO> recipeRequests =
+                     objectMapper.readerFor(RecipeRequestDTO.class).readValues(requestBody)) {
+            return ResponseEntity.ok(recipeImportService.importRecipes(recipeRequests));
+        }
+    }
+
     // Method to update one or more fields of recipe, patch api is used.
+    // With If-Match, the update is only applied if the recipe is still at that version (412 otherwise);
+    // the response carries the new version as its ETag.
     @PatchMapping("/{id}")
     public ResponseEntity<ApiResponse<String>> updateRecipeDetails(@PathVariable Long id,
-                                                                          @RequestBody @Valid RecipeUpdateRequestDTO updatedRecipeDTO) throws JsonMappingException {
-        ApiResponse<String> updatedResponse = recipeManagementService.updateRecipe(id, updatedRecipeDTO);
-        return ResponseEntity.ok(updatedResponse);
+                                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                                   @RequestBody @Valid RecipeUpdateRequestDTO updatedRecipeDTO) throws JsonMappingException {
+        RecipeUpdateResultDTO result = recipeManagementService.updateRecipe(id, updatedRecipeDTO, parseVersion(ifMatch));
+        return withETag(ResponseEntity.ok(), result.getVersion()).body(result.getResponse());
     }
 
     // Method to delete the recipe by getting it by id
@@ -53,14 +127,63 @@ public class RecipeController {
     }
 
     // Method to search the recipe based upon request parameters
-    // returns list of recipes with details
+    // returns list of recipes with details, sorted by `sort` and cut to the first `limit` when given
     @GetMapping("/search")
     public RecipeResponse filterRecipes(
             @RequestParam(required = false) @Valid RecipeType recipeType,
             @RequestParam(required = false) @Valid @Min(value = 1, message = "Servings must be at least 1.") Integer servings,
             @RequestParam(required = false) List<String> includeIngredients,
+            @RequestParam(defaultValue = "ANY") IncludeMode includeMode,
+            @RequestParam(required = false) List<String> excludeIngredients,
+            @RequestParam(required = false) String searchInstructions,
+            @RequestParam(required = false) RecipeSort sort,
+            @RequestParam(required = false) Sort.Direction direction,
+            @RequestParam(required = false) Integer limit) {
+        return searchService.filterRecipes(recipeType, servings, includeIngredients, includeMode, excludeIngredients,
+                searchInstructions, sort, direction, limit);
+    }
+
+    // Streaming variant of the search: same filters, recipes in id order written as newline-delimited JSON
+    @GetMapping(value = "/search/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<RecipeResponseDT0> streamFilteredRecipes(
+            @RequestParam(required = false) @Valid RecipeType recipeType,
+            @RequestParam(required = false) @Valid @Min(value = 1, message = "Servings must be at least 1.") Integer servings,
+            @RequestParam(required = false) List<String> includeIngredients,
+            @RequestParam(defaultValue = "ANY") IncludeMode includeMode,
             @RequestParam(required = false) List<String> excludeIngredients,
             @RequestParam(required = false) String searchInstructions) {
-        return searchService.filterRecipes(recipeType, servings, includeIngredients, excludeIngredients, searchInstructions);
+        return recipeStreamService.streamFilteredRecipes(recipeType, servings, includeIngredients, includeMode,
+                excludeIngredients, searchInstructions);
+    }
+
+    // Method to find the recipes that can be cooked from the given ingredients, fully or with at most
+    // `maxMissing` ingredients to buy, ranked by the share of their ingredients already at hand
+    @GetMapping("/pantry")
+    public PantryResponse findPantryMatches(
+            @RequestParam List<String> ingredients,
+            @RequestParam(defaultValue = "0") int maxMissing,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) Integer limit) {
+        return searchService.findPantryMatches(ingredients, maxMissing, limit);
+    }
+
+    // The recipe version in an If-Match header ("3"), or null for no header or "*"
+    private static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        // If-Match compares strongly, and a weak tag never matches
+        if (tag.startsWith("W/")) {
+            throw new PreconditionFailedException("If-Match " + ifMatch + " is a weak entity tag");
+        }
+        try {
+            return Long.valueOf(tag.replace("\"", ""));
+        } catch (NumberFormatException ex) {
+            throw new PreconditionFailedException("If-Match " + ifMatch + " does not match any recipe version");
+        }
+    }
+
+    private static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder builder, Long version) {
+        return version != null ? builder.eTag(String.valueOf(version)) : builder;
     }
 }
@@ -0,0 +1,18 @@
+package com.manage.recipe.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkImportResponse {
+    private int imported;
+    private int failed;
+    private List<BulkImportResultDTO> results;
+}
@@ -0,0 +1,17 @@
+package com.manage.recipe.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkImportResultDTO {
+    private int index;          // Position of the recipe in the imported batch, starting at 0
+    private boolean success;
+    private Long id;            // Id of the created recipe, null when it failed
+    private String message;     // Validation or persistence error when it failed
+}
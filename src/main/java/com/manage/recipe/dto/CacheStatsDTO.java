@@ -0,0 +1,18 @@
+package com.manage.recipe.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheStatsDTO {
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;     // Entries dropped for size or expiry, not explicit invalidations
+    private double hitRate;
+}
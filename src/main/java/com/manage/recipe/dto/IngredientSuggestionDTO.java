@@ -0,0 +1,15 @@
+package com.manage.recipe.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class IngredientSuggestionDTO {
+    private String name;
+    private int recipeCount;    // Number of recipes using the ingredient
+}
@@ -0,0 +1,18 @@
+package com.manage.recipe.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PantryMatchDTO {
+    private RecipeResponseDT0 recipe;
+    private double coverage;                    // Share of the recipe's ingredients found in the pantry, 0 to 1
+    private List<String> missingIngredients;    // Ingredients of the recipe that are not in the pantry
+}
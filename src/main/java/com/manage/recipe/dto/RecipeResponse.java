@@ -14,4 +14,5 @@ import java.util.List;
 public class RecipeResponse {
     private List<RecipeResponseDT0> recipes;
     private int totalRecipes;
+    private Long nextCursor;   // Id to pass as `after` for the next page, null on the last page
 }
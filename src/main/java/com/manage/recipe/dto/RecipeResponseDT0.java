@@ -28,4 +28,6 @@ public class RecipeResponseDT0 {
 
     private String instructions;
 
+    private Long version;
+
 }
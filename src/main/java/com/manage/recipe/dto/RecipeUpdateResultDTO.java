@@ -0,0 +1,12 @@
+package com.manage.recipe.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Outcome of a recipe update together with the version it produced, sent back as the ETag
+@Getter
+@AllArgsConstructor
+public class RecipeUpdateResultDTO {
+    private ApiResponse<String> response;
+    private Long version;
+}
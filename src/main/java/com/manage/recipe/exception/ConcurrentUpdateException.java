@@ -0,0 +1,8 @@
+package com.manage.recipe.exception;
+
+// A concurrent update changed the same fields of the resource, so this update cannot be applied on top of it
+public class ConcurrentUpdateException extends RuntimeException {
+    public ConcurrentUpdateException(String message) {
+        super(message);
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncRequestNotUsableException;
 
 @ControllerAdvice
 public class GlobalExceptionHandler extends Exception {
@@ -39,6 +40,23 @@ public class GlobalExceptionHandler extends Exception {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ApiResponse> handlePreconditionFailedException(PreconditionFailedException ex, WebRequest request) {
+        ApiResponse errorResponse = new ApiResponse(ex.getMessage(), HttpStatus.PRECONDITION_FAILED.value(), false);
+        return new ResponseEntity<>(errorResponse, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(ConcurrentUpdateException.class)
+    public ResponseEntity<ApiResponse> handleConcurrentUpdateException(ConcurrentUpdateException ex, WebRequest request) {
+        ApiResponse errorResponse = new ApiResponse(ex.getMessage(), HttpStatus.CONFLICT.value(), false);
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    // The client disconnected while a response was being streamed, there is nobody left to answer
+    @ExceptionHandler(AsyncRequestNotUsableException.class)
+    public void handleClientDisconnected(AsyncRequestNotUsableException ex) {
+    }
+
     // Handle generic exceptions
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse> handleGlobalException(Exception ex, WebRequest request) {
@@ -0,0 +1,8 @@
+package com.manage.recipe.exception;
+
+// The client's If-Match version is no longer the current version of the resource
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,243 @@
+package com.manage.recipe.index;
+
+import com.manage.recipe.model.Recipe;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// In-memory full-text index over recipe names and instructions.
+// Each field keeps postings (term -> recipe id -> positions) built by TextAnalyzer.
+// Queries are a mix of bare terms and "quoted phrases"; every term and phrase must match (AND),
+// and results are ranked with BM25, with matches in the name weighted above matches in the instructions.
+@Component
+public class FullTextIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double NAME_WEIGHT = 2.0;
+    private static final double INSTRUCTIONS_WEIGHT = 1.0;
+
+    private static final Pattern QUERY_CLAUSE = Pattern.compile("\"([^\"]*)\"|([^\\s\"]+)");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Field nameField = new Field(NAME_WEIGHT);
+    private final Field instructionsField = new Field(INSTRUCTIONS_WEIGHT);
+    private final List<Field> fields = List.of(nameField, instructionsField);
+
+    private volatile boolean ready;
+
+    private static final class Field {
+        final double weight;
+        final Map<String, Map<Long, int[]>> postings = new HashMap<>();
+        final Map<Long, Integer> lengths = new HashMap<>();
+        final Map<Long, Set<String>> termsByRecipe = new HashMap<>();
+        long totalLength;
+
+        Field(double weight) {
+            this.weight = weight;
+        }
+
+        void add(long id, String text) {
+            List<TextAnalyzer.Token> tokens = TextAnalyzer.analyze(text);
+            Map<String, List<Integer>> positionsByTerm = new HashMap<>();
+            for (TextAnalyzer.Token token : tokens) {
+                positionsByTerm.computeIfAbsent(token.term(), term -> new ArrayList<>()).add(token.position());
+            }
+            for (Map.Entry<String, List<Integer>> entry : positionsByTerm.entrySet()) {
+                int[] positions = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+                postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(id, positions);
+            }
+            lengths.put(id, tokens.size());
+            termsByRecipe.put(id, positionsByTerm.keySet());
+            totalLength += tokens.size();
+        }
+
+        void remove(long id) {
+            Set<String> terms = termsByRecipe.remove(id);
+            if (terms == null) {
+                return;
+            }
+            for (String term : terms) {
+                Map<Long, int[]> posting = postings.get(term);
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+            totalLength -= lengths.remove(id);
+        }
+
+        Map<Long, int[]> posting(String term) {
+            return postings.getOrDefault(term, Collections.emptyMap());
+        }
+
+        double averageLength() {
+            return lengths.isEmpty() ? 0 : (double) totalLength / lengths.size();
+        }
+    }
+
+    // One query clause: a single term, or a phrase whose terms must appear at the given relative positions
+    private record Clause(List<TextAnalyzer.Token> tokens) {
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Adds the recipe to the index, replacing whatever was indexed for it before
+    public void index(Recipe recipe) {
+        long id = recipe.getId();
+        lock.writeLock().lock();
+        try {
+            nameField.remove(id);
+            instructionsField.remove(id);
+            nameField.add(id, recipe.getName());
+            instructionsField.add(id, recipe.getInstructions());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long recipeId) {
+        lock.writeLock().lock();
+        try {
+            nameField.remove(recipeId);
+            instructionsField.remove(recipeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the ids of recipes matching every term and phrase of the query, best match first.
+    // Empty when the query has nothing searchable in it (e.g. only stop words or punctuation),
+    // in which case the caller should fall back to a plain substring search.
+    public Optional<List<Long>> search(String query) {
+        List<Clause> clauses = parse(query);
+        if (clauses.isEmpty()) {
+            return Optional.empty();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        clauses.forEach(clause -> clause.tokens().forEach(token -> terms.add(token.term())));
+
+        lock.readLock().lock();
+        try {
+            Set<Long> candidates = null;
+            for (String term : sortedBySelectivity(terms)) {
+                Set<Long> recipesWithTerm = new HashSet<>(nameField.posting(term).keySet());
+                recipesWithTerm.addAll(instructionsField.posting(term).keySet());
+                if (candidates == null) {
+                    candidates = recipesWithTerm;
+                } else {
+                    candidates.retainAll(recipesWithTerm);
+                }
+                if (candidates.isEmpty()) {
+                    return Optional.of(List.of());
+                }
+            }
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (Long id : candidates) {
+                if (clauses.stream().allMatch(clause -> matchesPhrase(clause, id))) {
+                    scores.put(id, score(terms, id));
+                }
+            }
+
+            List<Long> ranked = new ArrayList<>(scores.keySet());
+            ranked.sort(Comparator.comparing((Long id) -> scores.get(id)).reversed()
+                    .thenComparing(Comparator.naturalOrder()));
+            return Optional.of(ranked);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<Clause> parse(String query) {
+        List<Clause> clauses = new ArrayList<>();
+        if (query == null) {
+            return clauses;
+        }
+        Matcher matcher = QUERY_CLAUSE.matcher(query);
+        while (matcher.find()) {
+            String text = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+            List<TextAnalyzer.Token> tokens = TextAnalyzer.analyze(text);
+            if (!tokens.isEmpty()) {
+                clauses.add(new Clause(tokens));
+            }
+        }
+        return clauses;
+    }
+
+    // Must be called with the read lock held
+    private List<String> sortedBySelectivity(Set<String> terms) {
+        List<String> sorted = new ArrayList<>(terms);
+        sorted.sort(Comparator.comparingInt(term -> nameField.posting(term).size()
+                + instructionsField.posting(term).size()));
+        return sorted;
+    }
+
+    // A single-term clause always matches here (candidates already contain the term);
+    // a phrase matches when all its terms occur in one field at the same relative offsets.
+    private boolean matchesPhrase(Clause clause, Long id) {
+        if (clause.tokens().size() == 1) {
+            return true;
+        }
+        for (Field field : fields) {
+            int[] firstPositions = field.posting(clause.tokens().get(0).term()).get(id);
+            if (firstPositions == null) {
+                continue;
+            }
+            for (int start : firstPositions) {
+                if (phraseAt(field, clause, id, start)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean phraseAt(Field field, Clause clause, Long id, int start) {
+        int offset = clause.tokens().get(0).position();
+        for (int i = 1; i < clause.tokens().size(); i++) {
+            TextAnalyzer.Token token = clause.tokens().get(i);
+            int[] positions = field.posting(token.term()).get(id);
+            if (positions == null || Arrays.binarySearch(positions, start + token.position() - offset) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Weighted sum of the per-field BM25 scores of every query term
+    private double score(Set<String> terms, Long id) {
+        double score = 0;
+        for (Field field : fields) {
+            int documentCount = field.lengths.size();
+            double averageLength = field.averageLength();
+            Integer length = field.lengths.get(id);
+            if (length == null || averageLength == 0) {
+                continue;
+            }
+            for (String term : terms) {
+                Map<Long, int[]> posting = field.posting(term);
+                int[] positions = posting.get(id);
+                if (positions == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                double tf = positions.length;
+                double norm = tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+                score += field.weight * idf * norm;
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,284 @@
+package com.manage.recipe.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory autocomplete over the distinct ingredient names of the dictionary.
+// Names are kept in a trie with, for every name, the number of indexed recipes using it, and for every node the
+// highest count below it, so the most used completions are found best first without visiting the others.
+// Partial names match as prefixes; misspelt ones match within a small edit distance (insertions, deletions,
+// substitutions and swapped neighbours), growing with the length of the input.
+// Names are added by IngredientService as it learns or creates them, counts through RecipeIndexer.
+@Component
+public class IngredientNameIndex {
+
+    // Inputs up to this length must match exactly, up to the next one within one edit, longer ones within two
+    private static final int EXACT_MAX_LENGTH = 2;
+    private static final int ONE_EDIT_MAX_LENGTH = 5;
+    private static final int MAX_DISTANCE = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Node root = new Node("");
+
+    private int size;
+
+    private int longestName;
+
+    public record Suggestion(String name, int recipeCount) {
+    }
+
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        final String prefix;
+        // Children by their last character, kept sorted
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        boolean isName;
+        int recipeCount;
+        // Highest recipe count of the names at or below this node
+        int maxRecipeCount;
+
+        Node(String prefix) {
+            this.prefix = prefix;
+        }
+
+        void updateMax() {
+            int max = isName ? recipeCount : 0;
+            for (Node child : children) {
+                max = Math.max(max, child.maxRecipeCount);
+            }
+            maxRecipeCount = max;
+        }
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node addChild(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            Node child = new Node(prefix + c);
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newKeys[at] = c;
+            newChildren[at] = child;
+            System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+    }
+
+    // Prefix nodes matched by the input, and the edit distance of the match
+    private record Match(Node node, int distance) {
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Adds the names not known yet, with no recipes
+    public void add(Collection<String> names) {
+        lock.writeLock().lock();
+        try {
+            for (String name : names) {
+                addName(RecipeIndex.normalise(name));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Moves the recipe counts of one recipe from its previous ingredient names to its current ones
+    public void updateRecipeCounts(Set<String> previousNames, Set<String> currentNames) {
+        lock.writeLock().lock();
+        try {
+            for (String name : previousNames) {
+                if (!currentNames.contains(name)) {
+                    addToRecipeCount(name, -1);
+                }
+            }
+            for (String name : currentNames) {
+                if (!previousNames.contains(name)) {
+                    addToRecipeCount(name, 1);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The `limit` names best matching the input: exact prefix matches first, then by edit distance, each by
+    // recipe count (most used first) and then by name. The trie is only searched one edit further when the
+    // closer matches do not fill the limit.
+    public List<Suggestion> suggest(String input, int limit) {
+        String query = RecipeIndex.normalise(input.trim());
+        int maxDistance = query.length() <= EXACT_MAX_LENGTH ? 0
+                : query.length() <= ONE_EDIT_MAX_LENGTH ? 1 : MAX_DISTANCE;
+        lock.readLock().lock();
+        try {
+            List<Suggestion> suggestions = new ArrayList<>();
+            Set<String> suggested = new HashSet<>();
+            Node prefixNode = find(query);
+            if (prefixNode != null) {
+                mostUsed(List.of(prefixNode), limit, suggested, suggestions);
+            }
+            // One row of the edit distance table per trie depth, reused along the walk
+            int[][] rows = new int[longestName + 1][query.length() + 1];
+            for (int j = 0; j <= query.length(); j++) {
+                rows[0][j] = j;
+            }
+            for (int distance = 1; distance <= maxDistance && suggestions.size() < limit; distance++) {
+                List<Match> matches = new ArrayList<>();
+                collectMatches(root, query, rows, distance + 1, distance, matches);
+                List<Node> nodes = new ArrayList<>();
+                for (Match match : matches) {
+                    if (match.distance() == distance) {
+                        nodes.add(match.node());
+                    }
+                }
+                mostUsed(nodes, limit, suggested, suggestions);
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The node of the given prefix, or null. Must be called with the read lock held.
+    private Node find(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    // Walks the trie with one row of the (optimal string alignment) edit distance table per node: the row at the
+    // node's depth holds in cell j the distance between the first j characters of the query and the node's
+    // prefix. A node whose prefix is within `maxDistance` of the whole query is a match, unless an ancestor
+    // matched as well or better; children are skipped once no cell of the row is within reach. Must be called
+    // with the read lock held.
+    private static void collectMatches(Node node, String query, int[][] rows, int bestAncestorDistance,
+                                       int maxDistance, List<Match> matches) {
+        int depth = node.prefix.length();
+        int[] row = rows[depth];
+        int distance = row[query.length()];
+        if (distance <= maxDistance && distance < bestAncestorDistance) {
+            matches.add(new Match(node, distance));
+            bestAncestorDistance = distance;
+        }
+        if (node.children.length == 0) {
+            return;
+        }
+        int[] parentRow = depth > 0 ? rows[depth - 1] : null;
+        int[] childRow = rows[depth + 1];
+        for (int k = 0; k < node.keys.length; k++) {
+            char c = node.keys[k];
+            childRow[0] = row[0] + 1;
+            int closest = childRow[0];
+            for (int j = 1; j < row.length; j++) {
+                int substitution = row[j - 1] + (query.charAt(j - 1) == c ? 0 : 1);
+                int cell = Math.min(substitution, Math.min(row[j] + 1, childRow[j - 1] + 1));
+                if (parentRow != null && j > 1 && query.charAt(j - 2) == c
+                        && query.charAt(j - 1) == node.prefix.charAt(depth - 1)) {
+                    cell = Math.min(cell, parentRow[j - 2] + 1);
+                }
+                childRow[j] = cell;
+                closest = Math.min(closest, cell);
+            }
+            // No extension of the child's prefix can come back within reach
+            if (closest <= maxDistance) {
+                collectMatches(node.children[k], query, rows, bestAncestorDistance, maxDistance, matches);
+            }
+        }
+    }
+
+    // Adds the most used names below the given nodes, until `limit` suggestions, skipping names already suggested.
+    // Nodes are expanded best first by the highest count below them, so only the paths to the names returned
+    // (and their siblings) are visited. Must be called with the read lock held.
+    private static void mostUsed(List<Node> nodes, int limit, Set<String> suggested, List<Suggestion> suggestions) {
+        // A node stands for the names below it (by its highest count) or, once expanded, for its own name
+        record Candidate(Node node, boolean isName) {
+            int recipeCount() {
+                return isName ? node.recipeCount : node.maxRecipeCount;
+            }
+        }
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(
+                Comparator.comparingInt(Candidate::recipeCount).reversed()
+                        .thenComparing(candidate -> candidate.node().prefix));
+        for (Node node : nodes) {
+            candidates.add(new Candidate(node, false));
+        }
+        while (!candidates.isEmpty() && suggestions.size() < limit) {
+            Candidate candidate = candidates.poll();
+            Node node = candidate.node();
+            if (candidate.isName()) {
+                if (suggested.add(node.prefix)) {
+                    suggestions.add(new Suggestion(node.prefix, node.recipeCount));
+                }
+                continue;
+            }
+            if (node.isName) {
+                candidates.add(new Candidate(node, true));
+            }
+            for (Node child : node.children) {
+                candidates.add(new Candidate(child, false));
+            }
+        }
+    }
+
+    // Must be called with the write lock held
+    private void addToRecipeCount(String name, int delta) {
+        List<Node> path = pathTo(name);
+        Node node = path.get(path.size() - 1);
+        node.recipeCount = Math.max(0, node.recipeCount + delta);
+        for (int i = path.size() - 1; i >= 0; i--) {
+            path.get(i).updateMax();
+        }
+    }
+
+    // Must be called with the write lock held
+    private void addName(String name) {
+        List<Node> path = pathTo(name);
+        for (int i = path.size() - 1; i >= 0; i--) {
+            path.get(i).updateMax();
+        }
+    }
+
+    // The nodes from the root to the name, created as needed, the name's marked as a name.
+    // Must be called with the write lock held.
+    private List<Node> pathTo(String name) {
+        List<Node> path = new ArrayList<>(name.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < name.length(); i++) {
+            node = node.addChild(name.charAt(i));
+            path.add(node);
+        }
+        if (!node.isName) {
+            node.isName = true;
+            size++;
+            longestName = Math.max(longestName, name.length());
+        }
+        return path;
+    }
+}
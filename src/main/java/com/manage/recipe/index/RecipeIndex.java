@@ -0,0 +1,448 @@
+package com.manage.recipe.index;
+
+import com.manage.recipe.model.IncludeMode;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeIngredient;
+import com.manage.recipe.model.RecipeSort;
+import com.manage.recipe.model.RecipeType;
+import org.roaringbitmap.longlong.LongConsumer;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over the recipe catalogue.
+// Maps each normalised ingredient name, recipe type and servings value to a compressed bitmap of recipe ids,
+// so ingredient/type/servings filters are answered with bitmap AND/OR/ANDNOT instead of joins.
+// It also keeps each recipe's sort keys, so results can be ordered and cut to a top-K without the database,
+// and its number of ingredients, so pantry matches are counted and ranked without the database as well.
+// It is loaded and kept up to date through RecipeIndexer.
+@Component
+public class RecipeIndex {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Roaring64Bitmap> recipesByIngredient = new HashMap<>();
+    private final Map<RecipeType, Roaring64Bitmap> recipesByType = new EnumMap<>(RecipeType.class);
+    private final Map<Integer, Roaring64Bitmap> recipesByServings = new HashMap<>();
+    private final Roaring64Bitmap allRecipes = new Roaring64Bitmap();
+
+    // Number of ingredients of each recipe, in arrays of 2^16 consecutive ids keyed by the id's upper bits, so
+    // a pantry search can read it for every recipe without a lookup per recipe
+    private final Map<Long, short[]> ingredientCounts = new HashMap<>();
+
+    // What was indexed for each recipe, so it can be removed again on update or delete
+    private final Map<Long, IndexedRecipe> indexedRecipes = new HashMap<>();
+
+    private volatile boolean ready;
+
+    private record IndexedRecipe(String name, RecipeType recipeType, Integer servings, LocalDateTime createdAt,
+                                 LocalDateTime updatedAt, Set<String> ingredientNames) {
+    }
+
+    // Recipes with `ingredientCount` ingredients, `matched` of them in the pantry
+    private record PantryGroup(int ingredientCount, int matched) {
+
+        double coverage() {
+            return (double) matched / ingredientCount;
+        }
+
+        int missing() {
+            return ingredientCount - matched;
+        }
+    }
+
+    public static String normalise(String ingredientName) {
+        return ingredientName.toLowerCase();
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return indexedRecipes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The recipe's distinct ingredient names, normalised as the index keeps them
+    public static Set<String> ingredientNames(Recipe recipe) {
+        Set<String> ingredientNames = new HashSet<>();
+        if (recipe.getIngredients() != null) {
+            for (RecipeIngredient line : recipe.getIngredients()) {
+                ingredientNames.add(normalise(line.getIngredient().getName()));
+            }
+        }
+        return ingredientNames;
+    }
+
+    // Adds the recipe to the index, replacing whatever was indexed for it before.
+    // Returns the ingredient names it was indexed with until now (none for a new recipe).
+    public Set<String> index(Recipe recipe) {
+        Set<String> ingredientNames = ingredientNames(recipe);
+        IndexedRecipe indexed = new IndexedRecipe(recipe.getName(), recipe.getRecipeType(), recipe.getServings(),
+                recipe.getCreatedAt(), recipe.getUpdatedAt(), ingredientNames);
+        long id = recipe.getId();
+
+        lock.writeLock().lock();
+        try {
+            Set<String> previousNames = removeFromBitmaps(id);
+            indexedRecipes.put(id, indexed);
+            allRecipes.addLong(id);
+            if (indexed.recipeType() != null) {
+                recipesByType.computeIfAbsent(indexed.recipeType(), type -> new Roaring64Bitmap()).addLong(id);
+            }
+            if (indexed.servings() != null) {
+                recipesByServings.computeIfAbsent(indexed.servings(), servings -> new Roaring64Bitmap()).addLong(id);
+            }
+            for (String name : ingredientNames) {
+                recipesByIngredient.computeIfAbsent(name, key -> new Roaring64Bitmap()).addLong(id);
+            }
+            short[] counts = ingredientCounts.computeIfAbsent(id >>> CHUNK_BITS, key -> new short[CHUNK_SIZE]);
+            counts[(int) (id & CHUNK_MASK)] = (short) Math.min(ingredientNames.size(), Short.MAX_VALUE);
+            return previousNames;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the ingredient names the recipe was indexed with (none if it was not indexed)
+    public Set<String> remove(Long recipeId) {
+        lock.writeLock().lock();
+        try {
+            return removeFromBitmaps(recipeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the ids of recipes matching all given filters, in ascending order.
+    // A recipe matches the include filter when it contains any of the listed ingredients.
+    public List<Long> filter(RecipeType recipeType, Integer servings,
+                             List<String> includeIngredients, List<String> excludeIngredients) {
+        return filter(recipeType, servings, includeIngredients, IncludeMode.ANY, excludeIngredients);
+    }
+
+    // Same, with the include filter matching any or all of the listed ingredients
+    public List<Long> filter(RecipeType recipeType, Integer servings, List<String> includeIngredients,
+                             IncludeMode includeMode, List<String> excludeIngredients) {
+        return top(recipeType, servings, includeIngredients, includeMode, excludeIngredients, null, null, null);
+    }
+
+    // The first `limit` recipes matching the filters (all of them when limit is null), in the order of `sort`
+    // with ties broken by id, or in id order when no sort is given. The matches are walked once and only the
+    // best `limit` ids are kept, so a broad filter does not build its whole result.
+    public List<Long> top(RecipeType recipeType, Integer servings,
+                          List<String> includeIngredients, IncludeMode includeMode, List<String> excludeIngredients,
+                          RecipeSort sort, Sort.Direction direction, Integer limit) {
+        return page(recipeType, servings, includeIngredients, includeMode, excludeIngredients, sort, direction, limit)
+                .recipeIds();
+    }
+
+    // The ids top() returns, and how many recipes matched before the limit
+    public record Page(List<Long> recipeIds, int totalMatches) {
+    }
+
+    public Page page(RecipeType recipeType, Integer servings,
+                     List<String> includeIngredients, IncludeMode includeMode, List<String> excludeIngredients,
+                     RecipeSort sort, Sort.Direction direction, Integer limit) {
+        lock.readLock().lock();
+        try {
+            Roaring64Bitmap result = matching(recipeType, servings, includeIngredients, includeMode,
+                    excludeIngredients);
+            int totalMatches = (int) result.getLongCardinality();
+            return new Page(select(result.iterator(), totalMatches, order(sort, direction, includeIngredients), limit),
+                    totalMatches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The first `limit` of the given recipes in the order of `sort`, e.g. to re-order full-text matches.
+    // Recipes that are no longer indexed are left out.
+    public List<Long> top(List<Long> recipeIds, List<String> includeIngredients,
+                          RecipeSort sort, Sort.Direction direction, Integer limit) {
+        lock.readLock().lock();
+        try {
+            Iterator<Long> ids = recipeIds.stream().filter(indexedRecipes::containsKey).iterator();
+            return select(ids, recipeIds.size(), order(sort, direction, includeIngredients), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The first `limit` recipes (all of them when limit is null) that can be cooked from the pantry with at most
+    // `maxMissing` of their ingredients missing, most covered first: by the share of their ingredients found in
+    // the pantry, then by fewest missing, then by most found, then by id. Recipes sharing no ingredient with the
+    // pantry are left out.
+    // The pantry ingredients of every recipe are counted by walking the pantry's ingredient bitmaps into arrays
+    // laid out as ingredientCounts, which are then compared with it in one sequential pass. The work grows with
+    // the recipes having a pantry ingredient, with no per-recipe lookup or sort: recipes with the same number
+    // of ingredients and of matches rank the same, and these groups are walked best first until the limit.
+    public List<Long> pantry(List<String> pantryIngredients, int maxMissing, Integer limit) {
+        lock.readLock().lock();
+        try {
+            MatchCounter matchCounter = new MatchCounter();
+            for (String name : new HashSet<>(pantryIngredients.stream().map(RecipeIndex::normalise).toList())) {
+                Roaring64Bitmap bitmap = recipesByIngredient.get(name);
+                if (bitmap != null) {
+                    bitmap.forEach(matchCounter);
+                }
+            }
+
+            Map<PantryGroup, List<Long>> groups = new HashMap<>();
+            for (long key : new TreeSet<>(matchCounter.matches.keySet())) {
+                short[] matches = matchCounter.matches.get(key);
+                short[] counts = ingredientCounts.get(key);
+                for (int offset = 0; offset < CHUNK_SIZE; offset++) {
+                    int matched = matches[offset];
+                    if (matched > 0 && counts[offset] - matched <= maxMissing) {
+                        groups.computeIfAbsent(new PantryGroup(counts[offset], matched), group -> new ArrayList<>())
+                                .add(key << CHUNK_BITS | offset);
+                    }
+                }
+            }
+
+            List<Long> selected = new ArrayList<>();
+            List<PantryGroup> ranked = new ArrayList<>(groups.keySet());
+            ranked.sort(Comparator.comparingDouble(PantryGroup::coverage).reversed()
+                    .thenComparingInt(PantryGroup::missing)
+                    .thenComparing(Comparator.comparingInt(PantryGroup::matched).reversed()));
+            for (PantryGroup group : ranked) {
+                List<Long> ids = groups.get(group);
+                if (limit != null && selected.size() + ids.size() >= limit) {
+                    selected.addAll(ids.subList(0, limit - selected.size()));
+                    break;
+                }
+                selected.addAll(ids);
+            }
+            return selected;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Adds one to the count of every recipe id it is given, in arrays laid out as ingredientCounts.
+    // Ids mostly come in ascending order, so the array of the previous id is kept at hand.
+    private static final class MatchCounter implements LongConsumer {
+
+        private final Map<Long, short[]> matches = new HashMap<>();
+
+        private long key = -1;
+
+        private short[] chunk;
+
+        @Override
+        public void accept(long id) {
+            if (id >>> CHUNK_BITS != key) {
+                key = id >>> CHUNK_BITS;
+                chunk = matches.computeIfAbsent(key, newKey -> new short[CHUNK_SIZE]);
+            }
+            chunk[(int) (id & CHUNK_MASK)]++;
+        }
+    }
+
+    // Must be called with the read lock held
+    private Roaring64Bitmap matching(RecipeType recipeType, Integer servings, List<String> includeIngredients,
+                                     IncludeMode includeMode, List<String> excludeIngredients) {
+        Roaring64Bitmap result = null;
+        if (includeIngredients != null && !includeIngredients.isEmpty()) {
+            result = includeMode == IncludeMode.ALL ? intersectionOf(includeIngredients) : unionOf(includeIngredients);
+        }
+        if (recipeType != null) {
+            result = intersect(result, bitmapOrEmpty(recipesByType.get(recipeType)));
+        }
+        if (servings != null) {
+            result = intersect(result, bitmapOrEmpty(recipesByServings.get(servings)));
+        }
+        if (result == null) {
+            result = allRecipes.clone();
+        }
+        if (excludeIngredients != null && !excludeIngredients.isEmpty()) {
+            result.andNot(unionOf(excludeIngredients));
+        }
+        return result;
+    }
+
+    // Keeps the `limit` first ids in a heap whose head is the worst one kept, so every further id is either
+    // dropped or swapped in with one comparison and a log(limit) update
+    private static List<Long> select(Iterator<Long> ids, int count, Comparator<Long> order, Integer limit) {
+        int size = limit != null ? Math.min(limit, count) : count;
+        if (order == null) {
+            List<Long> selected = new ArrayList<>(size);
+            while (ids.hasNext() && selected.size() < size) {
+                selected.add(ids.next());
+            }
+            return selected;
+        }
+        if (limit == null) {
+            List<Long> selected = new ArrayList<>(size);
+            while (ids.hasNext()) {
+                selected.add(ids.next());
+            }
+            selected.sort(order);
+            return selected;
+        }
+        PriorityQueue<Long> kept = new PriorityQueue<>(Math.max(size, 1), order.reversed());
+        while (ids.hasNext()) {
+            Long id = ids.next();
+            if (kept.size() < size) {
+                kept.add(id);
+            } else if (size > 0 && order.compare(id, kept.peek()) < 0) {
+                kept.poll();
+                kept.add(id);
+            }
+        }
+        List<Long> selected = new ArrayList<>(kept);
+        selected.sort(order);
+        return selected;
+    }
+
+    // The order of `sort` over indexed recipe ids, nulls last in either direction, then ascending ids.
+    // Must be called with the read lock held.
+    private Comparator<Long> order(RecipeSort sort, Sort.Direction direction, List<String> includeIngredients) {
+        if (sort == null) {
+            return null;
+        }
+        Sort.Direction sortDirection = direction != null ? direction : sort.getDefaultDirection();
+        Comparator<Long> byKey = switch (sort) {
+            case NAME -> byKey(id -> indexedRecipes.get(id).name(), String.CASE_INSENSITIVE_ORDER, sortDirection);
+            case SERVINGS -> byKey(id -> indexedRecipes.get(id).servings(), Comparator.<Integer>naturalOrder(),
+                    sortDirection);
+            case CREATED_AT -> byKey(id -> indexedRecipes.get(id).createdAt(),
+                    Comparator.<LocalDateTime>naturalOrder(), sortDirection);
+            case UPDATED_AT -> byKey(id -> indexedRecipes.get(id).updatedAt(),
+                    Comparator.<LocalDateTime>naturalOrder(), sortDirection);
+            case BEST_MATCH -> {
+                List<Roaring64Bitmap> included = includedBitmaps(includeIngredients);
+                yield byKey(id -> matchCount(included, id), Comparator.<Integer>naturalOrder(), sortDirection);
+            }
+        };
+        return byKey.thenComparing(Comparator.naturalOrder());
+    }
+
+    private static <T> Comparator<Long> byKey(Function<Long, T> key, Comparator<T> order, Sort.Direction direction) {
+        return Comparator.comparing(key, Comparator.nullsLast(direction.isAscending() ? order : order.reversed()));
+    }
+
+    // One bitmap per distinct included ingredient that any recipe uses. Must be called with the read lock held.
+    private List<Roaring64Bitmap> includedBitmaps(List<String> includeIngredients) {
+        if (includeIngredients == null) {
+            return List.of();
+        }
+        return includeIngredients.stream()
+                .map(RecipeIndex::normalise)
+                .distinct()
+                .map(recipesByIngredient::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static int matchCount(List<Roaring64Bitmap> included, long id) {
+        int count = 0;
+        for (Roaring64Bitmap bitmap : included) {
+            if (bitmap.contains(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Returns the ingredient names the recipe was indexed with. Must be called with the write lock held.
+    private Set<String> removeFromBitmaps(long id) {
+        IndexedRecipe previous = indexedRecipes.remove(id);
+        if (previous == null) {
+            return Set.of();
+        }
+        allRecipes.removeLong(id);
+        if (previous.recipeType() != null) {
+            removeFromBitmap(recipesByType, previous.recipeType(), id);
+        }
+        if (previous.servings() != null) {
+            removeFromBitmap(recipesByServings, previous.servings(), id);
+        }
+        for (String name : previous.ingredientNames()) {
+            removeFromBitmap(recipesByIngredient, name, id);
+        }
+        short[] counts = ingredientCounts.get(id >>> CHUNK_BITS);
+        if (counts != null) {
+            counts[(int) (id & CHUNK_MASK)] = 0;
+        }
+        return previous.ingredientNames();
+    }
+
+    private static <K> void removeFromBitmap(Map<K, Roaring64Bitmap> bitmaps, K key, long id) {
+        Roaring64Bitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.removeLong(id);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    // Must be called with the read lock held
+    private Roaring64Bitmap unionOf(List<String> ingredientNames) {
+        Roaring64Bitmap union = new Roaring64Bitmap();
+        for (String name : ingredientNames) {
+            Roaring64Bitmap bitmap = recipesByIngredient.get(normalise(name));
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    // Recipes having every one of the ingredients: the bitmaps are intersected from the smallest up, so the
+    // result never grows past the rarest ingredient and an unknown name ends it at once.
+    // Must be called with the read lock held.
+    private Roaring64Bitmap intersectionOf(List<String> ingredientNames) {
+        List<Roaring64Bitmap> bitmaps = new ArrayList<>();
+        for (String name : new HashSet<>(ingredientNames.stream().map(RecipeIndex::normalise).toList())) {
+            Roaring64Bitmap bitmap = recipesByIngredient.get(name);
+            if (bitmap == null) {
+                return new Roaring64Bitmap();
+            }
+            bitmaps.add(bitmap);
+        }
+        bitmaps.sort(Comparator.comparingLong(Roaring64Bitmap::getLongCardinality));
+        Roaring64Bitmap intersection = null;
+        for (Roaring64Bitmap bitmap : bitmaps) {
+            intersection = intersect(intersection, bitmap);
+            if (intersection.isEmpty()) {
+                break;
+            }
+        }
+        return intersection;
+    }
+
+    // Intersects into a copy, so the bitmaps held by the index are never modified by a query
+    private static Roaring64Bitmap intersect(Roaring64Bitmap result, Roaring64Bitmap bitmap) {
+        if (result == null) {
+            return bitmap.clone();
+        }
+        result.and(bitmap);
+        return result;
+    }
+
+    private static Roaring64Bitmap bitmapOrEmpty(Roaring64Bitmap bitmap) {
+        return bitmap != null ? bitmap : new Roaring64Bitmap();
+    }
+}
@@ -0,0 +1,118 @@
+package com.manage.recipe.index;
+
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.repository.RecipeFilterRepository;
+import com.manage.recipe.repository.RecipeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Single entry point for keeping the in-memory indexes in step with the database.
+// Loads every index from one pass over the catalogue once the application is ready,
+// and applies each saved or deleted recipe to all of them.
+// Writes are accepted while the warm-up runs. Every recipe they save or delete is remembered until it ends, and the
+// warm-up skips those recipes: the row it read may be older than the write, and a deleted recipe must not come back.
+@Component
+public class RecipeIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecipeIndexer.class);
+
+    private static final int WARM_UP_BATCH_SIZE = 1000;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeFilterRepository recipeFilterRepository;
+
+    @Autowired
+    private RecipeIndex recipeIndex;
+
+    @Autowired
+    private FullTextIndex fullTextIndex;
+
+    @Autowired
+    private IngredientNameIndex ingredientNameIndex;
+
+    // Ids of the recipes saved or deleted since startup, null once the warm-up is done. Changed, and applied
+    // together with the indexes, only while holding warmUpLock, so a batch never overwrites a newer write.
+    private volatile Set<Long> changedDuringWarmUp = new HashSet<>();
+
+    private final Object warmUpLock = new Object();
+
+    // Loads the whole catalogue into the indexes, walking it in keyset batches
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long cursor = 0L;
+        List<Long> ids;
+        do {
+            ids = recipeRepository.findIdsAfter(cursor, Limit.of(WARM_UP_BATCH_SIZE));
+            List<Recipe> recipes = recipeFilterRepository.findWithIngredientsByIds(ids);
+            synchronized (warmUpLock) {
+                for (Recipe recipe : recipes) {
+                    if (!changedDuringWarmUp.contains(recipe.getId())) {
+                        apply(recipe);
+                    }
+                }
+            }
+            if (!ids.isEmpty()) {
+                cursor = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == WARM_UP_BATCH_SIZE);
+
+        synchronized (warmUpLock) {
+            logger.info("Recipe indexes ready with {} recipes, {} written during the warm-up",
+                    recipeIndex.size(), changedDuringWarmUp.size());
+            changedDuringWarmUp = null;
+        }
+        recipeIndex.markReady();
+        fullTextIndex.markReady();
+    }
+
+    public void index(Recipe recipe) {
+        if (!recordDuringWarmUp(recipe.getId(), () -> apply(recipe))) {
+            apply(recipe);
+        }
+    }
+
+    public void remove(Long recipeId) {
+        if (!recordDuringWarmUp(recipeId, () -> unapply(recipeId))) {
+            unapply(recipeId);
+        }
+    }
+
+    // Remembers the recipe and applies the change while the warm-up runs; false once it is done
+    private boolean recordDuringWarmUp(Long recipeId, Runnable change) {
+        if (changedDuringWarmUp == null) {
+            return false;
+        }
+        synchronized (warmUpLock) {
+            if (changedDuringWarmUp == null) {
+                return false;
+            }
+            changedDuringWarmUp.add(recipeId);
+            change.run();
+            return true;
+        }
+    }
+
+    private void apply(Recipe recipe) {
+        Set<String> previousNames = recipeIndex.index(recipe);
+        ingredientNameIndex.updateRecipeCounts(previousNames, RecipeIndex.ingredientNames(recipe));
+        fullTextIndex.index(recipe);
+    }
+
+    private void unapply(Long recipeId) {
+        Set<String> previousNames = recipeIndex.remove(recipeId);
+        ingredientNameIndex.updateRecipeCounts(previousNames, Set.of());
+        fullTextIndex.remove(recipeId);
+    }
+}
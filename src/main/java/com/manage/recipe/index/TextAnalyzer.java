@@ -0,0 +1,83 @@
+package com.manage.recipe.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Splits text into lower-cased, stemmed terms for the full-text index.
+// Stop words are dropped but still advance the position counter, so phrase queries
+// like "salt and pepper" keep the gap between their remaining terms.
+public final class TextAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "if", "in", "into", "is", "it",
+            "of", "on", "or", "so", "such", "that", "the", "their", "then", "there", "these", "they", "this", "to",
+            "until", "was", "while", "will", "with");
+
+    private TextAnalyzer() {
+    }
+
+    public record Token(String term, int position) {
+    }
+
+    public static List<Token> analyze(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int position = 0;
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = text.substring(start, i).toLowerCase();
+                if (!STOP_WORDS.contains(word)) {
+                    tokens.add(new Token(stem(word), position));
+                }
+                position++;
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Light suffix-stripping stemmer for English recipe text: folds plurals and -ed/-ing forms,
+    // so "chopped", "chopping" and "chops" all become "chop" and "tomatoes" becomes "tomato".
+    static String stem(String word) {
+        if (word.length() <= 3 || !Character.isLetter(word.charAt(word.length() - 1))) {
+            return word;
+        }
+        String stem = word;
+        if (stem.endsWith("ies") && stem.length() > 4) {
+            stem = stem.substring(0, stem.length() - 3) + "y";
+        } else if (stem.endsWith("sses")) {
+            stem = stem.substring(0, stem.length() - 2);
+        } else if (stem.endsWith("s") && !stem.endsWith("ss") && !stem.endsWith("us")) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+
+        if (stem.endsWith("ing") && stem.length() - 3 >= 3) {
+            stem = undouble(stem.substring(0, stem.length() - 3));
+        } else if (stem.endsWith("ed") && stem.length() - 2 >= 3) {
+            stem = undouble(stem.substring(0, stem.length() - 2));
+        }
+
+        if (stem.endsWith("e") && stem.length() > 3) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        return stem;
+    }
+
+    // "chopp" -> "chop", but "fill", "press" and short stems like "add" are kept
+    private static String undouble(String stem) {
+        int length = stem.length();
+        if (length >= 4 && stem.charAt(length - 1) == stem.charAt(length - 2)
+                && "lsz".indexOf(stem.charAt(length - 1)) < 0) {
+            return stem.substring(0, length - 1);
+        }
+        return stem;
+    }
+}
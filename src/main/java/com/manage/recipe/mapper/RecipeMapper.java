@@ -0,0 +1,82 @@
+package com.manage.recipe.mapper;
+
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.RecipeRequestDTO;
+import com.manage.recipe.dto.RecipeResponseDT0;
+import com.manage.recipe.model.Ingredient;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeIngredient;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Plain field-by-field mapping between the entities and the DTOs.
+// Replaces the reflective ModelMapper on the response path, where every listed recipe is mapped;
+// null values are copied as null, the same way ModelMapper did.
+@Component
+public class RecipeMapper {
+
+    public RecipeResponseDT0 toResponse(Recipe recipe) {
+        if (recipe == null) {
+            return null;
+        }
+        RecipeResponseDT0 response = new RecipeResponseDT0();
+        response.setId(recipe.getId());
+        response.setName(recipe.getName());
+        response.setRecipeType(recipe.getRecipeType());
+        response.setServings(recipe.getServings());
+        response.setIngredients(toIngredientDTOs(recipe.getIngredients()));
+        response.setInstructions(recipe.getInstructions());
+        response.setVersion(recipe.getVersion());
+        return response;
+    }
+
+    public List<RecipeResponseDT0> toResponses(List<Recipe> recipes) {
+        List<RecipeResponseDT0> responses = new ArrayList<>(recipes.size());
+        for (Recipe recipe : recipes) {
+            responses.add(toResponse(recipe));
+        }
+        return responses;
+    }
+
+    // Builds a new, unsaved recipe. Its lines point to unsaved ingredients carrying only the requested id
+    // and name; the caller replaces them with the ingredients resolved against the dictionary.
+    public Recipe toEntity(RecipeRequestDTO request) {
+        if (request == null) {
+            return null;
+        }
+        Recipe recipe = new Recipe();
+        recipe.setName(request.getName());
+        recipe.setRecipeType(request.getRecipeType());
+        recipe.setServings(request.getServings());
+        if (request.getIngredients() != null) {
+            for (IngredientDTO ingredientDTO : request.getIngredients()) {
+                recipe.addIngredient(new Ingredient(ingredientDTO.getId(), ingredientDTO.getName()),
+                        ingredientDTO.getQuantity(), ingredientDTO.getUnit());
+            }
+        }
+        recipe.setInstructions(request.getInstructions());
+        return recipe;
+    }
+
+    // The ingredient id and name come from the dictionary, quantity and unit from the recipe's line
+    public IngredientDTO toDTO(RecipeIngredient line) {
+        if (line == null) {
+            return null;
+        }
+        Ingredient ingredient = line.getIngredient();
+        return new IngredientDTO(ingredient.getId(), ingredient.getName(), line.getQuantity(), line.getUnit());
+    }
+
+    private List<IngredientDTO> toIngredientDTOs(List<RecipeIngredient> lines) {
+        if (lines == null) {
+            return null;
+        }
+        List<IngredientDTO> ingredientDTOs = new ArrayList<>(lines.size());
+        for (RecipeIngredient line : lines) {
+            ingredientDTOs.add(toDTO(line));
+        }
+        return ingredientDTOs;
+    }
+}
@@ -0,0 +1,32 @@
+package com.manage.recipe.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+// Counts the SQL statements Hibernate prepares on the current thread between start() and stop().
+// Registered as Hibernate's statement inspector, it sees every statement and returns it unchanged.
+@Component
+public class SqlStatementCounter implements StatementInspector {
+
+    private final ThreadLocal<long[]> count = new ThreadLocal<>();
+
+    public void start() {
+        count.set(new long[1]);
+    }
+
+    // Returns the number of statements since start(), or 0 when counting was not started on this thread
+    public long stop() {
+        long[] current = count.get();
+        count.remove();
+        return current != null ? current[0] : 0;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        long[] current = count.get();
+        if (current != null) {
+            current[0]++;
+        }
+        return sql;
+    }
+}
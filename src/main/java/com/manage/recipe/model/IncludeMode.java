@@ -0,0 +1,8 @@
+package com.manage.recipe.model;
+
+// How includeIngredients is applied: ANY keeps the recipes containing at least one of the listed ingredients,
+// ALL only the recipes containing every one of them
+public enum IncludeMode {
+    ANY,
+    ALL
+}
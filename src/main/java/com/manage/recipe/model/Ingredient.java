@@ -1,33 +1,29 @@
 package com.manage.recipe.model;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Immutable;
 
-import java.util.List;
-
+// Dictionary entry: one row per (lowercase) ingredient name, shared by every recipe that uses it.
+// Quantities and units belong to the recipe lines (RecipeIngredient), so an ingredient never changes
+// once created and can be cached freely.
 @Entity
-@Setter
+@Immutable
 @Getter
+@Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @ToString
 public class Ingredient {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingredient_seq")
+    @SequenceGenerator(name = "ingredient_seq", allocationSize = 50) // Sequence ids let Hibernate batch inserts
     private Long id;
 
-    public String name;
-    public Double quantity;
-    public String unit;
-
-    @ManyToMany(mappedBy = "ingredients")
-    @JsonIgnore
-    private List<Recipe> recipes;
+    @Column(nullable = false, unique = true)
+    private String name;
 
-    public Ingredient(String name, Double quantity, String unit) {
+    public Ingredient(String name) {
         this.name = name;
-        this.quantity = quantity;
-        this.unit = unit;
     }
 }
@@ -1,9 +1,11 @@
 package com.manage.recipe.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Entity
@@ -13,7 +15,8 @@ import java.util.List;
 @NoArgsConstructor
 public class Recipe {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // Auto-generate ID
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recipe_seq") // Auto-generate ID
+    @SequenceGenerator(name = "recipe_seq", allocationSize = 50) // Sequence ids let Hibernate batch inserts
     private Long id;
 
     private String name;
@@ -23,13 +26,11 @@ public class Recipe {
 
     private Integer servings;
 
-    @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.EAGER)
-    @JoinTable(
-            name = "recipe_ingredient", // Join table to manage ManyToMany relationship
-            joinColumns = @JoinColumn(name = "recipe_id"),
-            inverseJoinColumns = @JoinColumn(name = "ingredient_id")
-    )
-    private List<Ingredient> ingredients;
+    // Only changed through the services (mergeIngredients), never by copying request fields onto the entity
+    @OneToMany(mappedBy = "recipe", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @OrderBy("id")
+    @JsonIgnore
+    private List<RecipeIngredient> ingredients;
 
     @Column(columnDefinition = "TEXT")
     private String instructions;
@@ -37,4 +38,17 @@ public class Recipe {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    @Version // Incremented on every update, a save based on an older version fails instead of overwriting it
+    private Long version;
+
+    // Adds an ingredient line at the end of the recipe
+    public RecipeIngredient addIngredient(Ingredient ingredient, Double quantity, String unit) {
+        if (ingredients == null) {
+            ingredients = new ArrayList<>();
+        }
+        RecipeIngredient line = new RecipeIngredient(this, ingredient, quantity, unit);
+        ingredients.add(line);
+        return line;
+    }
+
 }
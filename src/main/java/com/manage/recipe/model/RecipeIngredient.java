@@ -0,0 +1,38 @@
+package com.manage.recipe.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// One ingredient line of a recipe: which ingredient, and how much of it this recipe uses.
+// Changing a quantity or unit only writes this recipe's line.
+@Entity
+@Table(name = "recipe_ingredient_line")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class RecipeIngredient {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recipe_ingredient_line_seq")
+    @SequenceGenerator(name = "recipe_ingredient_line_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "recipe_id")
+    @ToString.Exclude
+    private Recipe recipe;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "ingredient_id")
+    private Ingredient ingredient;
+
+    private Double quantity;
+    private String unit;
+
+    public RecipeIngredient(Recipe recipe, Ingredient ingredient, Double quantity, String unit) {
+        this.recipe = recipe;
+        this.ingredient = ingredient;
+        this.quantity = quantity;
+        this.unit = unit;
+    }
+}
@@ -0,0 +1,23 @@
+package com.manage.recipe.model;
+
+import org.springframework.data.domain.Sort;
+
+// Orders the search results can be sorted in, each with the direction used when none is given.
+// BEST_MATCH ranks recipes by how many of the included ingredients they contain.
+public enum RecipeSort {
+    NAME(Sort.Direction.ASC),
+    SERVINGS(Sort.Direction.ASC),
+    CREATED_AT(Sort.Direction.DESC),
+    UPDATED_AT(Sort.Direction.DESC),
+    BEST_MATCH(Sort.Direction.DESC);
+
+    private final Sort.Direction defaultDirection;
+
+    RecipeSort(Sort.Direction defaultDirection) {
+        this.defaultDirection = defaultDirection;
+    }
+
+    public Sort.Direction getDefaultDirection() {
+        return defaultDirection;
+    }
+}
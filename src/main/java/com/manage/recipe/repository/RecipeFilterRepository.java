@@ -1,9 +1,14 @@
 package com.manage.recipe.repository;
 
+import com.manage.recipe.dto.RecipeResponseDT0;
+import com.manage.recipe.model.IncludeMode;
 import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeSort;
 import com.manage.recipe.model.RecipeType;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,4 +17,44 @@ public interface RecipeFilterRepository {
             RecipeType recipeType, Integer servings, List<String> includeIngredients,
             List<String> excludeIngredients, String searchInstructions);
 
+    // Only the ids of the recipes findByDynamicFilters returns, in id order
+    default List<Long> findIdsByDynamicFilters(
+            RecipeType recipeType, Integer servings, List<String> includeIngredients,
+            List<String> excludeIngredients, String searchInstructions) {
+        return findIdsByDynamicFilters(recipeType, servings, includeIngredients, IncludeMode.ANY, excludeIngredients,
+                searchInstructions, null, null, null);
+    }
+
+    // The same ids with the include filter matching any or all of the listed ingredients, in the order of
+    // `sort` (id order when null) with ties broken by id, and only the first `limit` of them when given,
+    // all applied by the query
+    List<Long> findIdsByDynamicFilters(
+            RecipeType recipeType, Integer servings, List<String> includeIngredients, IncludeMode includeMode,
+            List<String> excludeIngredients, String searchInstructions,
+            RecipeSort sort, Sort.Direction direction, Integer limit);
+
+    // Keyset page of the same ids in id order: the first `limit` of them greater than `afterId`
+    List<Long> findIdsByDynamicFiltersAfter(
+            RecipeType recipeType, Integer servings, List<String> includeIngredients, IncludeMode includeMode,
+            List<String> excludeIngredients, String searchInstructions, long afterId, int limit);
+
+    // How many recipes the id query above matches without a limit, counted by the database
+    long countByDynamicFilters(
+            RecipeType recipeType, Integer servings, List<String> includeIngredients, IncludeMode includeMode,
+            List<String> excludeIngredients, String searchInstructions);
+
+    // Ids of the recipes sharing an ingredient with the pantry and missing at most `maxMissing` of theirs, most
+    // covered first (share of their ingredients in the pantry, then fewest missing, then most found, then id),
+    // as RecipeIndex.pantry
+    List<Long> findIdsByPantry(List<String> pantryIngredients, int maxMissing, Integer limit);
+
+    // Loads the given recipes together with their ingredients, ordered by id
+    List<Recipe> findWithIngredientsByIds(Collection<Long> ids);
+
+    // The given recipes as responses, ordered by id, read as plain columns without loading any entity
+    List<RecipeResponseDT0> findResponsesByIds(Collection<Long> ids);
+
+    // Every recipe as a response, ordered by id, read the same way
+    List<RecipeResponseDT0> findAllResponses();
+
 }
@@ -1,11 +1,20 @@
 package com.manage.recipe.repository;
 
 import com.manage.recipe.model.Recipe;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 
 @Repository
 public interface RecipeRepository extends JpaRepository<Recipe, Long>{
 
+    // Keyset page of ids only, to walk the catalogue without loading entities
+    @Query("select r.id from Recipe r where r.id > :id order by r.id")
+    List<Long> findIdsAfter(@Param("id") Long id, Limit limit);
+
 }
@@ -1,16 +1,25 @@
 package com.manage.recipe.repository;
 
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.RecipeResponseDT0;
+import com.manage.recipe.model.IncludeMode;
 import com.manage.recipe.model.Ingredient;
 import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeIngredient;
+import com.manage.recipe.model.RecipeSort;
 import com.manage.recipe.model.RecipeType;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 public class RecipeRepositoryImpl implements RecipeFilterRepository {
@@ -20,17 +29,148 @@ public class RecipeRepositoryImpl implements RecipeFilterRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(RecipeRepositoryImpl.class);
 
+    // Upper bound on the number of ids bound into a single IN clause
+    private static final int ID_BATCH_SIZE = 1000;
+
     @Override
     public List<Recipe> findByDynamicFilters(RecipeType recipeType, Integer servings,
                                              List<String> includeIngredients,
                                              List<String> excludeIngredients,
                                              String searchInstructions) {
 
+        // First select only the matching ids, then load those recipes with their ingredients in one go.
+        // Selecting the entities directly would make Hibernate load the EAGER ingredients with one
+        // extra select per recipe.
+        return findWithIngredientsByIds(findIdsByDynamicFilters(recipeType, servings, includeIngredients,
+                excludeIngredients, searchInstructions));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> findIdsByDynamicFilters(RecipeType recipeType, Integer servings,
+                                              List<String> includeIngredients,
+                                              IncludeMode includeMode,
+                                              List<String> excludeIngredients,
+                                              String searchInstructions,
+                                              RecipeSort sort, Sort.Direction direction, Integer limit) {
+        return findIds(recipeType, servings, includeIngredients, includeMode, excludeIngredients, searchInstructions,
+                sort, direction, null, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> findIdsByDynamicFiltersAfter(RecipeType recipeType, Integer servings,
+                                                   List<String> includeIngredients,
+                                                   IncludeMode includeMode,
+                                                   List<String> excludeIngredients,
+                                                   String searchInstructions,
+                                                   long afterId, int limit) {
+        return findIds(recipeType, servings, includeIngredients, includeMode, excludeIngredients, searchInstructions,
+                null, null, afterId, limit);
+    }
+
+    // The id query, starting after `afterId` when given (only in id order, as a keyset page)
+    private List<Long> findIds(RecipeType recipeType, Integer servings, List<String> includeIngredients,
+                               IncludeMode includeMode, List<String> excludeIngredients, String searchInstructions,
+                               RecipeSort sort, Sort.Direction direction, Long afterId, Integer limit) {
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Recipe> recipeRoot = query.from(Recipe.class);
+
+        List<Predicate> predicates = filterPredicates(cb, query, recipeRoot, recipeType, servings,
+                excludeIngredients, searchInstructions);
+        if (afterId != null) {
+            predicates.add(cb.gt(recipeRoot.get("id"), afterId));
+        }
+        Join<RecipeIngredient, Ingredient> ingredientJoin = null;
+        int requiredCount = 0;
+        if (includeIngredients != null && !includeIngredients.isEmpty()) {
+            // Convert includeIngredients to lowercase
+            List<String> lowerCaseIncludeIngredients = toLowerCase(includeIngredients);
+            if (includeMode == IncludeMode.ALL) {
+                // The recipes' lines with any of the names, grouped per recipe below: one join for all the
+                // names, however many there are, instead of one sub-query per name
+                ingredientJoin = recipeRoot.join("ingredients", JoinType.INNER).join("ingredient", JoinType.INNER);
+                requiredCount = new HashSet<>(lowerCaseIncludeIngredients).size();
+                predicates.add(ingredientJoin.get("name").in(lowerCaseIncludeIngredients));
+            } else if (sort == null || sort == RecipeSort.BEST_MATCH) {
+                // The join is only needed (and only made) when filtering on included ingredients
+                ingredientJoin = recipeRoot.join("ingredients", JoinType.INNER).join("ingredient", JoinType.INNER);
+                // Names are stored lower-case, comparing them as they are lets the database use the name index
+                predicates.add(ingredientJoin.get("name").in(lowerCaseIncludeIngredients));
+            } else {
+                // Sorted by a recipe column, which a distinct id query cannot order by: a sub-query keeps
+                // one row per recipe instead
+                predicates.add(recipeRoot.get("id").in(recipesWithAnyOf(query, lowerCaseIncludeIngredients)));
+            }
+        }
+
+        query.select(recipeRoot.get("id")).where(cb.and(predicates.toArray(new Predicate[0])));
+        Path<Long> id = recipeRoot.get("id");
+        if (requiredCount > 0) {
+            // One group per recipe (and its sort key, which a grouped query can only order by when grouped on),
+            // kept when its lines matched as many distinct ingredients as were asked for. Every match has all
+            // of them, so a best match is in id order.
+            Expression<?> sortKey = sort == null || sort == RecipeSort.BEST_MATCH ? null
+                    : sortKey(recipeRoot, cb, sort);
+            query.groupBy(sortKey != null ? List.of(id, sortKey) : List.of(id))
+                    .having(cb.equal(cb.countDistinct(ingredientJoin.get("id")), (long) requiredCount))
+                    .orderBy(sortKey != null ? List.of(order(cb, sortKey, sort, direction), cb.asc(id))
+                            : List.of(cb.asc(id)));
+        } else if (sort == null) {
+            query.distinct(true).orderBy(cb.asc(id));
+        } else if (sort == RecipeSort.BEST_MATCH) {
+            // One group per recipe, ranked by how many of the included ingredients it has
+            if (ingredientJoin != null) {
+                query.groupBy(id).orderBy(order(cb, cb.countDistinct(ingredientJoin.get("id")), sort, direction),
+                        cb.asc(id));
+            } else {
+                query.orderBy(cb.asc(id));
+            }
+        } else {
+            query.orderBy(order(cb, sortKey(recipeRoot, cb, sort), sort, direction), cb.asc(id));
+        }
+
+        TypedQuery<Long> typedQuery = entityManager.createQuery(query);
+        if (limit != null) {
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery.getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countByDynamicFilters(RecipeType recipeType, Integer servings,
+                                      List<String> includeIngredients,
+                                      IncludeMode includeMode,
+                                      List<String> excludeIngredients,
+                                      String searchInstructions) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Recipe> query = cb.createQuery(Recipe.class);
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
         Root<Recipe> recipeRoot = query.from(Recipe.class);
-        Join<Recipe, Ingredient> ingredientJoin = recipeRoot.join("ingredients", JoinType.INNER);
 
+        List<Predicate> predicates = filterPredicates(cb, query, recipeRoot, recipeType, servings,
+                excludeIngredients, searchInstructions);
+        if (includeIngredients != null && !includeIngredients.isEmpty()) {
+            List<String> lowerCaseIncludeIngredients = toLowerCase(includeIngredients);
+            if (includeMode == IncludeMode.ALL) {
+                predicates.add(recipeRoot.get("id").in(recipesWithAllOf(cb, query, lowerCaseIncludeIngredients)));
+            } else {
+                Join<RecipeIngredient, Ingredient> ingredientJoin = recipeRoot.join("ingredients", JoinType.INNER)
+                        .join("ingredient", JoinType.INNER);
+                predicates.add(ingredientJoin.get("name").in(lowerCaseIncludeIngredients));
+            }
+        }
+
+        // Counted in the database, without reading any of the ids
+        query.select(cb.countDistinct(recipeRoot.get("id"))).where(cb.and(predicates.toArray(new Predicate[0])));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    // The type, servings, exclude and text filters, which the id and count queries apply the same way
+    private static List<Predicate> filterPredicates(CriteriaBuilder cb, CriteriaQuery<?> query, Root<Recipe> recipeRoot,
+                                                    RecipeType recipeType, Integer servings,
+                                                    List<String> excludeIngredients, String searchInstructions) {
         List<Predicate> predicates = new ArrayList<>();
 
         if (recipeType != null) {
@@ -39,40 +179,186 @@ public class RecipeRepositoryImpl implements RecipeFilterRepository {
         if (servings != null) {
             predicates.add(cb.equal(recipeRoot.get("servings"), servings));
         }
-        if (includeIngredients != null && !includeIngredients.isEmpty()) {
-            // Convert includeIngredients to lowercase
-            List<String> lowerCaseIncludeIngredients = includeIngredients.stream()
-                    .map(String::toLowerCase)
-                    .collect(Collectors.toList());
-            predicates.add(cb.lower(ingredientJoin.get("name")).in(lowerCaseIncludeIngredients));
-        }
 
         // Exclude Ingredients Filter
         if (excludeIngredients != null && !excludeIngredients.isEmpty()) {
-            List<String> lowerCaseExcludeIngredients = excludeIngredients.stream()
-                    .map(String::toLowerCase)
-                    .collect(Collectors.toList());
-
-            // Sub-query to identify recipes with excluded ingredients
-            Subquery<Long> subquery = query.subquery(Long.class);
-            Root<Recipe> subRecipeRoot = subquery.from(Recipe.class);
-            Join<Recipe, Ingredient> subIngredientJoin = subRecipeRoot.join("ingredients");
-
-            subquery.select(subRecipeRoot.get("id"))
-                    .where(cb.lower(subIngredientJoin.get("name")).in(lowerCaseExcludeIngredients));
-
             // Exclude recipes that match the sub-query
-            predicates.add(cb.not(recipeRoot.get("id").in(subquery)));
+            predicates.add(cb.not(recipeRoot.get("id").in(recipesWithAnyOf(query, toLowerCase(excludeIngredients)))));
         }
 
-        logger.info("In filter recipeImp, predicates are: {} ", predicates);
+        logger.debug("In filter recipeImp, predicates are: {} ", predicates);
 
+        // The text is looked for in the name and the instructions, the fields the full-text index covers
         if (searchInstructions != null && !searchInstructions.isEmpty()) {
-            predicates.add(cb.like(cb.lower(recipeRoot.get("instructions")), "%" + searchInstructions.toLowerCase() + "%"));
+            String pattern = "%" + searchInstructions.toLowerCase() + "%";
+            predicates.add(cb.or(cb.like(cb.lower(recipeRoot.get("name")), pattern),
+                    cb.like(cb.lower(recipeRoot.get("instructions")), pattern)));
         }
+        return predicates;
+    }
 
-        query.select(recipeRoot).where(cb.and(predicates.toArray(new Predicate[0]))).distinct(true);
+    private static List<String> toLowerCase(List<String> names) {
+        return names.stream()
+                .map(String::toLowerCase)
+                .collect(Collectors.toList());
+    }
 
-        return entityManager.createQuery(query).getResultList();
+    // Ids of the recipes having any of the given (lower-case) ingredient names
+    private static Subquery<Long> recipesWithAnyOf(CriteriaQuery<?> query, List<String> ingredientNames) {
+        Subquery<Long> subquery = query.subquery(Long.class);
+        Root<Recipe> subRecipeRoot = subquery.from(Recipe.class);
+        Join<RecipeIngredient, Ingredient> subIngredientJoin = subRecipeRoot.join("ingredients").join("ingredient");
+        return subquery.select(subRecipeRoot.get("id"))
+                .where(subIngredientJoin.get("name").in(ingredientNames));
+    }
+
+    // Ids of the recipes having all of the given (lower-case) ingredient names, grouped as in the id query
+    private static Subquery<Long> recipesWithAllOf(CriteriaBuilder cb, CriteriaQuery<?> query,
+                                                   List<String> ingredientNames) {
+        Subquery<Long> subquery = query.subquery(Long.class);
+        Root<Recipe> subRecipeRoot = subquery.from(Recipe.class);
+        Join<RecipeIngredient, Ingredient> subIngredientJoin = subRecipeRoot.join("ingredients").join("ingredient");
+        return subquery.select(subRecipeRoot.get("id"))
+                .where(subIngredientJoin.get("name").in(ingredientNames))
+                .groupBy(subRecipeRoot.get("id"))
+                .having(cb.equal(cb.countDistinct(subIngredientJoin.get("id")),
+                        (long) new HashSet<>(ingredientNames).size()));
+    }
+
+    private static Expression<?> sortKey(Root<Recipe> recipeRoot, CriteriaBuilder cb, RecipeSort sort) {
+        return switch (sort) {
+            case NAME -> cb.lower(recipeRoot.get("name"));
+            case SERVINGS -> recipeRoot.get("servings");
+            case CREATED_AT -> recipeRoot.get("createdAt");
+            default -> recipeRoot.get("updatedAt");
+        };
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> findIdsByPantry(List<String> pantryIngredients, int maxMissing, Integer limit) {
+        List<String> lowerCaseNames = pantryIngredients.stream()
+                .map(String::toLowerCase)
+                .collect(Collectors.toList());
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<RecipeIngredient> lineRoot = query.from(RecipeIngredient.class);
+        Join<RecipeIngredient, Ingredient> ingredientJoin = lineRoot.join("ingredient", JoinType.INNER);
+        Path<Long> recipeId = lineRoot.get("recipe").get("id");
+        // Distinct ingredients per recipe, and those of them in the pantry (the others count as null)
+        Expression<Long> total = cb.countDistinct(ingredientJoin.get("id"));
+        Expression<Long> matched = cb.countDistinct(cb.<Long>selectCase()
+                .when(ingredientJoin.get("name").in(lowerCaseNames), ingredientJoin.<Long>get("id"))
+                .otherwise(cb.nullLiteral(Long.class)));
+        // Only the lines of recipes having a pantry ingredient are grouped, found through the name index
+        query.multiselect(recipeId, total, matched)
+                .where(recipeId.in(recipesWithAnyOf(query, lowerCaseNames)))
+                .groupBy(recipeId)
+                .having(cb.le(cb.diff(total, matched), (long) maxMissing));
+
+        Comparator<Tuple> mostCovered = Comparator
+                .comparingDouble((Tuple row) -> (double) row.get(2, Long.class) / row.get(1, Long.class)).reversed()
+                .thenComparingLong(row -> row.get(1, Long.class) - row.get(2, Long.class))
+                .thenComparingLong(row -> -row.get(2, Long.class))
+                .thenComparingLong(row -> row.get(0, Long.class));
+        return entityManager.createQuery(query).getResultList().stream()
+                .sorted(mostCovered)
+                .limit(limit != null ? limit : Long.MAX_VALUE)
+                .map(row -> row.get(0, Long.class))
+                .collect(Collectors.toList());
+    }
+
+    // Nulls come last in either direction, as in RecipeIndex
+    private static Order order(HibernateCriteriaBuilder cb, Expression<?> sortKey, RecipeSort sort,
+                               Sort.Direction direction) {
+        Sort.Direction sortDirection = direction != null ? direction : sort.getDefaultDirection();
+        return sortDirection.isAscending() ? cb.asc(sortKey, false) : cb.desc(sortKey, false);
+    }
+
+    @Override
+    public List<Recipe> findWithIngredientsByIds(Collection<Long> ids) {
+        List<Recipe> recipes = new ArrayList<>(ids.size());
+        List<Long> idList = new ArrayList<>(ids);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        // One fetch-join query per ID_BATCH_SIZE ids, however many ingredients the recipes have
+        for (int from = 0; from < idList.size(); from += ID_BATCH_SIZE) {
+            List<Long> batch = idList.subList(from, Math.min(from + ID_BATCH_SIZE, idList.size()));
+
+            CriteriaQuery<Recipe> query = cb.createQuery(Recipe.class);
+            Root<Recipe> recipeRoot = query.from(Recipe.class);
+            recipeRoot.fetch("ingredients", JoinType.LEFT).fetch("ingredient", JoinType.LEFT);
+            query.select(recipeRoot)
+                    .where(recipeRoot.get("id").in(batch))
+                    .orderBy(cb.asc(recipeRoot.get("id")))
+                    .distinct(true);
+
+            recipes.addAll(entityManager.createQuery(query).getResultList());
+        }
+        return recipes;
+    }
+
+    // The projections below select only the response columns: nothing enters the persistence context, so
+    // there are no entity snapshots to keep or dirty-check. Read-only transactions also switch flushing off,
+    // so reading never writes changes pending in an open session.
+    @Override
+    @Transactional(readOnly = true)
+    public List<RecipeResponseDT0> findResponsesByIds(Collection<Long> ids) {
+        List<RecipeResponseDT0> responses = new ArrayList<>(ids.size());
+        List<Long> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += ID_BATCH_SIZE) {
+            responses.addAll(findResponses(idList.subList(from, Math.min(from + ID_BATCH_SIZE, idList.size()))));
+        }
+        return responses;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RecipeResponseDT0> findAllResponses() {
+        return findResponses(null);
+    }
+
+    // Reads the recipes with the given ids (all recipes when null) with one query, then all their ingredient
+    // lines with a second one ordered by recipe, and groups the lines under their recipe
+    private List<RecipeResponseDT0> findResponses(List<Long> ids) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> recipeQuery = cb.createTupleQuery();
+        Root<Recipe> recipeRoot = recipeQuery.from(Recipe.class);
+        recipeQuery.multiselect(recipeRoot.get("id"), recipeRoot.get("name"), recipeRoot.get("recipeType"),
+                        recipeRoot.get("servings"), recipeRoot.get("instructions"), recipeRoot.get("version"))
+                .orderBy(cb.asc(recipeRoot.get("id")));
+        if (ids != null) {
+            recipeQuery.where(recipeRoot.get("id").in(ids));
+        }
+        Map<Long, RecipeResponseDT0> responsesById = new LinkedHashMap<>();
+        for (Tuple row : entityManager.createQuery(recipeQuery).getResultList()) {
+            Long id = row.get(0, Long.class);
+            responsesById.put(id, new RecipeResponseDT0(id, row.get(1, String.class), row.get(2, RecipeType.class),
+                    row.get(3, Integer.class), new ArrayList<>(), row.get(4, String.class), row.get(5, Long.class)));
+        }
+        if (responsesById.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        CriteriaQuery<Tuple> lineQuery = cb.createTupleQuery();
+        Root<RecipeIngredient> lineRoot = lineQuery.from(RecipeIngredient.class);
+        Join<RecipeIngredient, Ingredient> ingredientJoin = lineRoot.join("ingredient", JoinType.INNER);
+        Path<Long> recipeId = lineRoot.get("recipe").get("id");
+        lineQuery.multiselect(recipeId, ingredientJoin.get("id"), ingredientJoin.get("name"),
+                        lineRoot.get("quantity"), lineRoot.get("unit"))
+                .orderBy(cb.asc(recipeId), cb.asc(lineRoot.get("id")));
+        if (ids != null) {
+            lineQuery.where(recipeId.in(ids));
+        }
+        for (Tuple row : entityManager.createQuery(lineQuery).getResultList()) {
+            // Lines of a recipe added after the first query have no recipe to go to
+            RecipeResponseDT0 response = responsesById.get(row.get(0, Long.class));
+            if (response != null) {
+                response.getIngredients().add(new IngredientDTO(row.get(1, Long.class), row.get(2, String.class),
+                        row.get(3, Double.class), row.get(4, String.class)));
+            }
+        }
+        return new ArrayList<>(responsesById.values());
     }
 }
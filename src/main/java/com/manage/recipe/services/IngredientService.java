@@ -1,115 +1,268 @@
 package com.manage.recipe.services;
 
 import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.IngredientSuggestionDTO;
+import com.manage.recipe.exception.InvalidInputException;
+import com.manage.recipe.index.IngredientNameIndex;
 import com.manage.recipe.model.Ingredient;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeIngredient;
 import com.manage.recipe.repository.IngredientRepository;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+// Resolves ingredient names and ids against the ingredient dictionary.
+// Ingredients never change once created, so every ingredient read from or written to the database is kept in
+// memory by id and by name: known ingredients are resolved without a query, with lock-free reads. An ingredient
+// is only added to the dictionary once its row is committed.
+// Every name entering the dictionary is also added to the autocomplete index.
 @Service
+@Timed("recipe.ingredients")
 public class IngredientService {
+
+    public static final int MAX_CREATE_ATTEMPTS = 3;
+
+    public static final int MAX_SUGGESTIONS = 50;
+
     @Autowired
     private IngredientRepository ingredientRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private IngredientNameIndex ingredientNameIndex;
+
     private static final Logger logger = LoggerFactory.getLogger(IngredientService.class);
 
-    public Ingredient findOrCreateIngredient(IngredientDTO ingredientDTO) {
-        // Convert the ingredient name to lowercase for consistency
-        String ingredientName = ingredientDTO.getName().toLowerCase();
+    private final Map<String, Ingredient> ingredientsByName = new ConcurrentHashMap<>();
+
+    private final Map<Long, Ingredient> ingredientsById = new ConcurrentHashMap<>();
+
+    // Loads the whole dictionary once the application is ready; lookups before that fall back to the database
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ingredientRepository.findAll().forEach(this::remember);
+        logger.info("Ingredient dictionary ready with {} ingredients", ingredientsByName.size());
+    }
 
-        if (ingredientDTO.getId() != null) {
-            // Try to find the ingredient by ID first
-            return ingredientRepository.findById(ingredientDTO.getId())
-                    .orElseGet(() -> ingredientRepository.save(new Ingredient(ingredientName,
-                            ingredientDTO.getQuantity(), ingredientDTO.getUnit())));
+    // Ingredient names completing or close to what was typed so far, most used first
+    public List<IngredientSuggestionDTO> suggestIngredients(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new InvalidInputException("A query is required.");
         }
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new InvalidInputException("Limit must be between 1 and " + MAX_SUGGESTIONS + ".");
+        }
+        return ingredientNameIndex.suggest(query, limit).stream()
+                .map(suggestion -> new IngredientSuggestionDTO(suggestion.name(), suggestion.recipeCount()))
+                .collect(Collectors.toList());
+    }
 
-        // If no ID, find ingredient by name or create a new one
-        return ingredientRepository.findByName(ingredientName)
-                .orElseGet(() -> ingredientRepository.save(new Ingredient(ingredientName,
-                        ingredientDTO.getQuantity(), ingredientDTO.getUnit())));
+    public Ingredient findOrCreateIngredient(IngredientDTO ingredientDTO) {
+        return findOrCreateIngredientList(List.of(ingredientDTO)).get(0);
     }
 
     // Helper method to create or fetch ingredient list
+    // Resolves the whole list from the dictionary; ingredients missing from it are looked up with one query by
+    // id and one by name, and the rest are created in one batch. Returns them in input order.
     public List<Ingredient> findOrCreateIngredientList(List<IngredientDTO> ingredientDTOs) {
-        return ingredientDTOs.stream()
-                .map(this::findOrCreateIngredient)
-                .collect(Collectors.toList());
+        Set<Long> missingIds = new HashSet<>();
+        Set<String> missingNames = new HashSet<>();
+        for (IngredientDTO ingredientDTO : ingredientDTOs) {
+            if (ingredientDTO.getId() != null && !ingredientsById.containsKey(ingredientDTO.getId())) {
+                missingIds.add(ingredientDTO.getId());
+            }
+            // An unknown id falls back to the (unique) name
+            String ingredientName = ingredientDTO.getName().toLowerCase();
+            if (!ingredientsByName.containsKey(ingredientName)) {
+                missingNames.add(ingredientName);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            ingredientRepository.findAllById(missingIds).forEach(this::remember);
+        }
+        missingNames.removeIf(ingredientsByName::containsKey);
+        if (!missingNames.isEmpty()) {
+            ingredientRepository.findByNameIn(missingNames).forEach(this::remember);
+        }
+
+        // Names still missing are new, created once even if repeated in the list
+        Set<String> newNames = new LinkedHashSet<>();
+        for (IngredientDTO ingredientDTO : ingredientDTOs) {
+            if (lookup(ingredientDTO) == null) {
+                newNames.add(ingredientDTO.getName().toLowerCase());
+            }
+        }
+        if (!newNames.isEmpty()) {
+            createIngredients(newNames);
+        }
+
+        List<Ingredient> ingredients = new ArrayList<>(ingredientDTOs.size());
+        for (IngredientDTO ingredientDTO : ingredientDTOs) {
+            ingredients.add(lookup(ingredientDTO));
+        }
+        return ingredients;
     }
 
-    public List<Ingredient> mergeIngredients(List<Ingredient> existingIngredients,
-                                             List<IngredientDTO> incomingIngredients,
-                                             List<String> removeIngredients) {
-        logger.info("MERGING Ingredients - existing: {}, incoming: {}, remove:{} ", existingIngredients,
-                incomingIngredients,removeIngredients);
+    private Ingredient lookup(IngredientDTO ingredientDTO) {
+        Ingredient ingredient = ingredientDTO.getId() != null ? ingredientsById.get(ingredientDTO.getId()) : null;
+        return ingredient != null ? ingredient : ingredientsByName.get(ingredientDTO.getName().toLowerCase());
+    }
+
+    // Inserts and commits the new names in their own transaction, so they can enter the dictionary right away.
+    // When another request creates one of the names first, the unique constraint on the name rejects the batch:
+    // the names created meanwhile are then read back and only the others are inserted again.
+    private void createIngredients(Set<String> names) {
+        TransactionTemplate newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int attempt = 1; ; attempt++) {
+            List<Ingredient> newIngredients = names.stream().map(Ingredient::new).collect(Collectors.toList());
+            try {
+                newTransaction.execute(status -> ingredientRepository.saveAllAndFlush(newIngredients));
+                newIngredients.forEach(this::remember);
+                return;
+            } catch (DataIntegrityViolationException ex) {
+                ingredientRepository.findByNameIn(names).forEach(this::remember);
+                names.removeIf(ingredientsByName::containsKey);
+                if (names.isEmpty()) {
+                    return;
+                }
+                if (attempt == MAX_CREATE_ATTEMPTS) {
+                    throw ex;
+                }
+                logger.info("Retrying ingredient creation after a concurrent insert: names={}", names.size());
+            }
+        }
+    }
 
-        // Convert `existingIngredients` into a map for easy lookup by ID and name
-        Map<Long, Ingredient> existingIngredientMapById = existingIngredients.stream()
-                .collect(Collectors.toMap(Ingredient::getId, ingredient -> ingredient));
+    private void remember(Ingredient ingredient) {
+        ingredientsById.putIfAbsent(ingredient.getId(), ingredient);
+        if (ingredientsByName.putIfAbsent(ingredient.getName(), ingredient) == null) {
+            ingredientNameIndex.add(List.of(ingredient.getName()));
+        }
+    }
 
-        Map<String, Ingredient> existingIngredientMapByName = existingIngredients.stream()
-                .collect(Collectors.toMap(ingredient -> ingredient.getName().toLowerCase(), ingredient -> ingredient));
+    // Applies a PATCH to the recipe's own ingredient lines. Lines are matched by ingredient id, then by name;
+    // their quantity and unit are updated in place, a new name points the line to that dictionary entry, and
+    // unknown names are added as new lines. The shared dictionary entries themselves are never modified.
+    public List<RecipeIngredient> mergeIngredients(Recipe recipe,
+                                                   List<IngredientDTO> incomingIngredients,
+                                                   List<String> removeIngredients) {
+        if (recipe.getIngredients() == null) {
+            recipe.setIngredients(new ArrayList<>());
+        }
+        List<RecipeIngredient> lines = recipe.getIngredients();
+        int existingCount = lines.size();
+        logger.atDebug().setMessage("MERGING Ingredients - existing: {}, incoming: {}, remove: {}")
+                .addArgument(() -> lines)
+                .addArgument(() -> incomingIngredients)
+                .addArgument(() -> removeIngredients)
+                .log();
 
-        // To update existing ingredients and adding new ones
+        // Convert the lines into maps for easy lookup by ingredient ID and name
+        Map<Long, RecipeIngredient> linesByIngredientId = new HashMap<>();
+        Map<String, RecipeIngredient> linesByName = new HashMap<>();
+        for (RecipeIngredient line : lines) {
+            linesByIngredientId.put(line.getIngredient().getId(), line);
+            linesByName.put(line.getIngredient().getName().toLowerCase(), line);
+        }
+
+        // Resolve every name the merge may point a line to before changing any line: creating a new ingredient
+        // commits a transaction, which must not flush a half-merged recipe
+        Map<String, Ingredient> resolved = resolveNames(incomingIngredients, linesByIngredientId, linesByName);
+
+        // To update existing lines and adding new ones
         if (incomingIngredients != null) {
             for (IngredientDTO incoming : incomingIngredients) {
                 // Checking if the ingredient has an ID for update
-                if (incoming.getId() != null && existingIngredientMapById.containsKey(incoming.getId())) {
-                    Ingredient existing = existingIngredientMapById.get(incoming.getId());
-                    // Updating existing ingredient
-                    if(incoming.getQuantity() != null) {
-                        existing.setQuantity(incoming.getQuantity());
-                    }
-                    if(incoming.getUnit() != null) {
-                        existing.setUnit(incoming.getUnit());
+                if (incoming.getId() != null && linesByIngredientId.containsKey(incoming.getId())) {
+                    RecipeIngredient line = linesByIngredientId.get(incoming.getId());
+                    updateLine(line, incoming);
+                    if (incoming.getName() != null
+                            && !incoming.getName().equalsIgnoreCase(line.getIngredient().getName())) {
+                        String ingredientName = incoming.getName().toLowerCase();
+                        line.setIngredient(resolved.get(ingredientName));
+                        linesByName.put(ingredientName, line);
                     }
-                    if(incoming.getName() != null) {
-                        existing.setName(incoming.getName().toLowerCase()); // Ensure name consistency
-                    }
-
                 }
-                // If no ID is present, look by name to update or add as new ingredient
+                // If no ID is present, look by name to update or add as new line
                 else {
                     String ingredientName = incoming.getName().toLowerCase();
-                    Ingredient existingByName = existingIngredientMapByName.get(ingredientName);
-
-                    if (existingByName != null) {
-                        // Updating by name if it exists
-                        if(incoming.getQuantity() != null) {
-                            existingByName.setQuantity(incoming.getQuantity());
-                        }
-                        if(incoming.getUnit() != null) {
-                            existingByName.setUnit(incoming.getUnit());
-                        }
+                    RecipeIngredient line = linesByName.get(ingredientName);
+                    if (line != null) {
+                        updateLine(line, incoming);
                     } else {
-                        // Adding as new ingredient
-                        Ingredient newIngredient = new Ingredient(incoming.getName().toLowerCase(),
-                                incoming.getQuantity(),
+                        line = recipe.addIngredient(resolved.get(ingredientName), incoming.getQuantity(),
                                 incoming.getUnit());
-                        existingIngredients.add(newIngredient);
-                        existingIngredientMapByName.put(ingredientName, newIngredient); // Add to map for reference
+                        linesByName.put(ingredientName, line); // Add to map for reference
                     }
                 }
             }
         }
 
-        // Removing ingredients specified in `removeIngredients`
+        // Removing lines whose ingredient is named in `removeIngredients`
         if (removeIngredients != null && !removeIngredients.isEmpty()) {
-            existingIngredients.removeIf(ingredient ->
+            lines.removeIf(line ->
                     removeIngredients.stream().anyMatch(removeName ->
-                            removeName.equalsIgnoreCase(ingredient.getName())));
+                            removeName.equalsIgnoreCase(line.getIngredient().getName())));
         }
-        logger.info("Final ingredients list: {}", existingIngredients);
+        logger.info("Merged ingredients: existing={} incoming={} remove={} result={}", existingCount,
+                incomingIngredients != null ? incomingIngredients.size() : 0,
+                removeIngredients != null ? removeIngredients.size() : 0, lines.size());
+        logger.atDebug().setMessage("Final ingredients list: {}").addArgument(() -> lines).log();
 
-        return existingIngredients;
+        return lines;
     }
 
+    // Dictionary entries for the names that are not on a line of the recipe yet
+    private Map<String, Ingredient> resolveNames(List<IngredientDTO> incomingIngredients,
+                                                 Map<Long, RecipeIngredient> linesByIngredientId,
+                                                 Map<String, RecipeIngredient> linesByName) {
+        if (incomingIngredients == null) {
+            return Map.of();
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (IngredientDTO incoming : incomingIngredients) {
+            if (incoming.getName() == null) {
+                continue;
+            }
+            String ingredientName = incoming.getName().toLowerCase();
+            RecipeIngredient lineById = incoming.getId() != null ? linesByIngredientId.get(incoming.getId()) : null;
+            boolean renamed = lineById != null && !ingredientName.equals(lineById.getIngredient().getName());
+            if (renamed || (lineById == null && !linesByName.containsKey(ingredientName))) {
+                names.add(ingredientName);
+            }
+        }
+        if (names.isEmpty()) {
+            return Map.of();
+        }
+        List<IngredientDTO> ingredientDTOs = names.stream()
+                .map(name -> new IngredientDTO(null, name, null, null))
+                .collect(Collectors.toList());
+        return findOrCreateIngredientList(ingredientDTOs).stream()
+                .collect(Collectors.toMap(Ingredient::getName, ingredient -> ingredient));
+    }
 
-
+    private void updateLine(RecipeIngredient line, IngredientDTO incoming) {
+        if (incoming.getQuantity() != null) {
+            line.setQuantity(incoming.getQuantity());
+        }
+        if (incoming.getUnit() != null) {
+            line.setUnit(incoming.getUnit());
+        }
+    }
 }
@@ -0,0 +1,238 @@
+package com.manage.recipe.services;
+
+import com.manage.recipe.cache.SearchResultCache;
+import com.manage.recipe.dto.BulkImportResponse;
+import com.manage.recipe.dto.BulkImportResultDTO;
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.RecipeRequestDTO;
+import com.manage.recipe.index.RecipeIndexer;
+import com.manage.recipe.mapper.RecipeMapper;
+import com.manage.recipe.model.Ingredient;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeIngredient;
+import com.manage.recipe.repository.RecipeRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Imports large batches of recipes.
+// Recipes are validated one by one, persisted in chunks of `recipe.import.chunk-size` per transaction,
+// and ingredients are resolved once per distinct name (or id) for the whole batch.
+// Chunks are committed as the input is read, so a recipe that cannot be read stops the import there: it is reported
+// as failed together with the results so far, and the chunks before it stay imported.
+@Service
+@Timed("recipe.service")
+public class RecipeImportService {
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientService ingredientService;
+
+    @Autowired
+    private RecipeIndexer recipeIndexer;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private RecipeMapper recipeMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${recipe.import.chunk-size:500}")
+    private int chunkSize;
+
+    private static final Logger logger = LoggerFactory.getLogger(RecipeImportService.class);
+
+    public static final String MALFORMED_MESSAGE = "Malformed recipe, the input after it was not imported.";
+
+    public static final String SAVE_FAILED_MESSAGE = "Recipe could not be saved.";
+
+    // A valid recipe of the current chunk together with its resolved ingredients
+    private record PendingRecipe(int index, RecipeRequestDTO request, List<Ingredient> ingredients) {
+    }
+
+    // Ingredients already resolved earlier in the batch, so each is looked up or created only once
+    private static final class ResolvedIngredients {
+        final Map<Long, Ingredient> byId = new HashMap<>();
+        final Map<String, Ingredient> byName = new HashMap<>();
+
+        Ingredient get(IngredientDTO ingredientDTO) {
+            return ingredientDTO.getId() != null
+                    ? byId.get(ingredientDTO.getId())
+                    : byName.get(ingredientDTO.getName().toLowerCase());
+        }
+    }
+
+    // Reads recipes from the iterator as it goes, so an NDJSON stream is never held in memory as a whole
+    public BulkImportResponse importRecipes(Iterator<RecipeRequestDTO> recipeRequests) {
+        List<BulkImportResultDTO> results = new ArrayList<>();
+        ResolvedIngredients resolvedIngredients = new ResolvedIngredients();
+        List<RecipeRequestDTO> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        while (true) {
+            RecipeRequestDTO request;
+            try {
+                if (!recipeRequests.hasNext()) {
+                    break;
+                }
+                request = recipeRequests.next();
+            } catch (RuntimeException ex) {
+                // A parse error leaves the reader at an unknown position in the input, so nothing after it is read
+                logger.warn("Bulk import stopped at malformed recipe {}: {}", index + chunk.size(), ex.getMessage());
+                results.add(new BulkImportResultDTO(index + chunk.size(), false, null, MALFORMED_MESSAGE));
+                break;
+            }
+            chunk.add(request);
+            if (chunk.size() == chunkSize) {
+                importChunk(index, chunk, resolvedIngredients, results);
+                index += chunk.size();
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(index, chunk, resolvedIngredients, results);
+        }
+
+        results.sort(Comparator.comparingInt(BulkImportResultDTO::getIndex));
+        int imported = (int) results.stream().filter(BulkImportResultDTO::isSuccess).count();
+        logger.info("Bulk import finished: {} imported, {} failed", imported, results.size() - imported);
+        return new BulkImportResponse(imported, results.size() - imported, results);
+    }
+
+    private void importChunk(int firstIndex, List<RecipeRequestDTO> chunk, ResolvedIngredients resolvedIngredients,
+                             List<BulkImportResultDTO> results) {
+        List<RecipeRequestDTO> validRequests = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            String error = validate(chunk.get(i));
+            if (error != null) {
+                results.add(new BulkImportResultDTO(firstIndex + i, false, null, error));
+            } else {
+                validRequests.add(chunk.get(i));
+                validIndexes.add(firstIndex + i);
+            }
+        }
+        if (validRequests.isEmpty()) {
+            return;
+        }
+
+        // Resolving the ingredients can fail like saving the recipes, and fails only this chunk as well
+        List<PendingRecipe> pendingRecipes = new ArrayList<>(validRequests.size());
+        List<Recipe> savedRecipes;
+        try {
+            resolveIngredients(validRequests, resolvedIngredients);
+            for (int i = 0; i < validRequests.size(); i++) {
+                RecipeRequestDTO request = validRequests.get(i);
+                List<Ingredient> ingredients = request.getIngredients().stream()
+                        .map(resolvedIngredients::get)
+                        .collect(Collectors.toList());
+                pendingRecipes.add(new PendingRecipe(validIndexes.get(i), request, ingredients));
+            }
+            savedRecipes = transactionTemplate.execute(status -> persist(pendingRecipes));
+        } catch (RuntimeException ex) {
+            logger.warn("Bulk import chunk starting at {} failed", firstIndex, ex);
+            validIndexes.forEach(validIndex ->
+                    results.add(new BulkImportResultDTO(validIndex, false, null, SAVE_FAILED_MESSAGE)));
+            return;
+        }
+
+        for (int i = 0; i < savedRecipes.size(); i++) {
+            Recipe savedRecipe = savedRecipes.get(i);
+            PendingRecipe pending = pendingRecipes.get(i);
+            // The saved recipe's lines only hold references to their ingredients, index it with the resolved ones
+            List<RecipeIngredient> lines = savedRecipe.getIngredients();
+            for (int j = 0; j < lines.size(); j++) {
+                lines.get(j).setIngredient(pending.ingredients().get(j));
+            }
+            recipeIndexer.index(savedRecipe);
+            results.add(new BulkImportResultDTO(pending.index(), true, savedRecipe.getId(), "Recipe successfully added"));
+        }
+        searchResultCache.invalidateAll();
+    }
+
+    // Looks up or creates, in one batch, the ingredients of this chunk not resolved by an earlier chunk
+    private void resolveIngredients(List<RecipeRequestDTO> requests, ResolvedIngredients resolvedIngredients) {
+        List<IngredientDTO> unresolved = new ArrayList<>();
+        Set<Object> seen = new HashSet<>();
+        for (RecipeRequestDTO request : requests) {
+            for (IngredientDTO ingredientDTO : request.getIngredients()) {
+                Object key = ingredientDTO.getId() != null ? ingredientDTO.getId() : ingredientDTO.getName().toLowerCase();
+                if (resolvedIngredients.get(ingredientDTO) == null && seen.add(key)) {
+                    unresolved.add(ingredientDTO);
+                }
+            }
+        }
+        if (unresolved.isEmpty()) {
+            return;
+        }
+
+        List<Ingredient> ingredients = ingredientService.findOrCreateIngredientList(unresolved);
+        for (int i = 0; i < unresolved.size(); i++) {
+            IngredientDTO ingredientDTO = unresolved.get(i);
+            if (ingredientDTO.getId() != null) {
+                resolvedIngredients.byId.put(ingredientDTO.getId(), ingredients.get(i));
+            } else {
+                resolvedIngredients.byName.put(ingredientDTO.getName().toLowerCase(), ingredients.get(i));
+            }
+        }
+    }
+
+    // Runs inside the chunk transaction
+    private List<Recipe> persist(List<PendingRecipe> pendingRecipes) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Recipe> recipes = new ArrayList<>(pendingRecipes.size());
+        for (PendingRecipe pending : pendingRecipes) {
+            Recipe recipe = recipeMapper.toEntity(pending.request());
+            // References avoid re-loading ingredients that were resolved in an earlier transaction
+            List<RecipeIngredient> lines = recipe.getIngredients();
+            for (int i = 0; i < lines.size(); i++) {
+                lines.get(i).setIngredient(entityManager.getReference(Ingredient.class,
+                        pending.ingredients().get(i).getId()));
+            }
+            recipe.setCreatedAt(now);
+            recipe.setUpdatedAt(now);
+            recipes.add(recipe);
+        }
+        List<Recipe> savedRecipes = recipeRepository.saveAll(recipes);
+        // Keep the persistence context small when the import runs inside a long-lived (request) session
+        entityManager.flush();
+        entityManager.clear();
+        return savedRecipes;
+    }
+
+    // Returns the first validation error in the same "field: message" form as the single-recipe API
+    private String validate(RecipeRequestDTO request) {
+        if (request == null) {
+            return "Recipe is required.";
+        }
+        Set<ConstraintViolation<RecipeRequestDTO>> violations = validator.validate(request);
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -1,30 +1,52 @@
 package com.manage.recipe.services;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.manage.recipe.cache.RecipeCache;
+import com.manage.recipe.cache.SearchResultCache;
 import com.manage.recipe.dto.*;
+import com.manage.recipe.exception.ConcurrentUpdateException;
+import com.manage.recipe.exception.InvalidInputException;
+import com.manage.recipe.exception.PreconditionFailedException;
 import com.manage.recipe.exception.ResourceNotFoundException;
+import com.manage.recipe.index.RecipeIndexer;
+import com.manage.recipe.mapper.RecipeMapper;
 import com.manage.recipe.model.Ingredient;
 import com.manage.recipe.model.Recipe;
+import com.manage.recipe.repository.RecipeFilterRepository;
 import com.manage.recipe.repository.RecipeRepository;
-import org.modelmapper.ModelMapper;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
+@Timed("recipe.service") // One timer per public method, tagged with class and method
 public class RecipeManagementService {
 
     @Autowired
     private RecipeRepository recipeRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private RecipeFilterRepository recipeFilterRepository;
+
+    @Autowired
+    private RecipeMapper recipeMapper;
 
     @Autowired
     private IngredientService ingredientService;
@@ -32,31 +54,113 @@ public class RecipeManagementService {
     @Autowired
     ObjectMapper objectMapper;
 
+    @Autowired
+    private RecipeIndexer recipeIndexer;
+
+    @Autowired
+    private RecipeCache recipeCache;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private static final Logger logger = LoggerFactory.getLogger(RecipeManagementService.class);
 
+    public static final int MAX_PAGE_SIZE = 500;
+
+    public static final int EXPORT_BATCH_SIZE = 500;
+
+    public static final int MAX_UPDATE_ATTEMPTS = 3;
+
+    // Logs a summary at INFO; the full response only at DEBUG
     public RecipeResponse getAllRecipes(){
-        List<Recipe> recipes = recipeRepository.findAll();
-        // Map the list of Recipe to RecipeResponseDTO
-        List<RecipeResponseDT0> recipeResponseList = recipes.stream()
-                .map(recipe -> modelMapper.map(recipe, RecipeResponseDT0.class))
-                .collect(Collectors.toList());
+        long start = System.nanoTime();
+        // Read straight into response DTOs, with one query for the recipes and one for their ingredients
+        List<RecipeResponseDT0> recipeResponseList = recipeFilterRepository.findAllResponses();
         RecipeResponse response = new RecipeResponse();
 
-        logger.info("GET method- response ingredients list is: {}", recipeResponseList);
+        response.setRecipes(recipeResponseList);
+        response.setTotalRecipes(recipeResponseList.size());
 
+        logger.info("GET all recipes: count={} durationMs={}", recipeResponseList.size(), elapsedMillis(start));
+        logger.atDebug().setMessage("GET all recipes response: {}").addArgument(() -> recipeResponseList).log();
+        return response;
+    }
+
+    // Method to fetch a single recipe, served from the recipe cache when possible
+    public RecipeResponseDT0 getRecipe(Long id) {
+        return recipeCache.get(id, recipeId -> recipeMapper.toResponse(findRecipeById(recipeId)));
+    }
+
+    public CacheStatsDTO getRecipeCacheStats() {
+        return recipeCache.stats();
+    }
+
+    // Method to fetch one keyset page of recipes, ordered by id and starting after the given cursor.
+    // Only `limit` rows are loaded, and the total comes from a count query instead of the full list.
+    public RecipeResponse getRecipesPage(Long after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidInputException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        long start = System.nanoTime();
+        long cursor = after != null ? after : 0L;
+        List<Long> ids = recipeRepository.findIdsAfter(cursor, Limit.of(limit));
+        List<RecipeResponseDT0> recipeResponseList = recipeFilterRepository.findResponsesByIds(ids);
+
+        RecipeResponse response = new RecipeResponse();
         response.setRecipes(recipeResponseList);
-        response.setTotalRecipes(recipes.size());
+        response.setTotalRecipes(Math.toIntExact(recipeRepository.count()));
+        if (ids.size() == limit) {
+            response.setNextCursor(ids.get(ids.size() - 1));
+        }
+        logger.info("GET page: after={} count={} durationMs={}", cursor, ids.size(), elapsedMillis(start));
         return response;
     }
 
+    // Method to export the whole catalogue as newline-delimited JSON.
+    // Recipes are read in keyset batches of ids and each batch as response projections, like the list pages,
+    // so no entity is loaded and memory stays bounded by EXPORT_BATCH_SIZE however large the catalogue is.
+    // Not transactional: every batch is read on its own, so a long download does not hold a connection.
+    public long exportRecipes(OutputStream outputStream) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(RecipeResponseDT0.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        OutputStream out = new BufferedOutputStream(outputStream);
+        long exported = 0;
+        long cursor = 0L;
+        List<Long> ids;
+        do {
+            ids = recipeRepository.findIdsAfter(cursor, Limit.of(EXPORT_BATCH_SIZE));
+            for (RecipeResponseDT0 recipe : recipeFilterRepository.findResponsesByIds(ids)) {
+                writer.writeValue(out, recipe);
+                out.write('\n');
+                exported++;
+            }
+            if (!ids.isEmpty()) {
+                cursor = ids.get(ids.size() - 1);
+            }
+            out.flush();
+        } while (ids.size() == EXPORT_BATCH_SIZE);
+
+        logger.info("Exported {} recipes", exported);
+        return exported;
+    }
+
 
-    // Method to add a new recipe
+    // Method to add a new recipe.
+    // Transactional so the recipe and its lines are written together, also when called outside a web request
+    // (no open-session-in-view). New ingredients are committed before that by IngredientService on their own.
+    @Transactional
     public ApiResponse<String> addRecipe(RecipeRequestDTO recipeRequest) {
-        Recipe recipe = modelMapper.map(recipeRequest, Recipe.class);
+        Recipe recipe = recipeMapper.toEntity(recipeRequest);
         List<Ingredient> ingredients = ingredientService.findOrCreateIngredientList(recipeRequest.getIngredients());
-        recipe.setIngredients(ingredients);
+        for (int i = 0; i < ingredients.size(); i++) {
+            recipe.getIngredients().get(i).setIngredient(ingredients.get(i));
+        }
         recipe.setCreatedAt(LocalDateTime.now());
-        logger.info("Adding recipe and ingredients are {}", recipe.getIngredients());
+        logger.info("Adding recipe: ingredients={}", ingredients.size());
+        logger.atDebug().setMessage("Adding recipe with ingredients {}").addArgument(recipe::getIngredients).log();
 
         return saveRecipeToRepository(recipe, "Recipe successfully added");
     }
@@ -64,10 +168,52 @@ public class RecipeManagementService {
 
     // Method for update recipe - one or more or all fields update
     public ApiResponse<String> updateRecipe(Long id, RecipeUpdateRequestDTO updatedRecipeDTO) throws JsonMappingException {
+        return updateRecipe(id, updatedRecipeDTO, null).getResponse();
+    }
+
+    // Updates the recipe only if it is still at `expectedVersion` (the If-Match of the PATCH, null for any version).
+    // When another update is saved between reading and saving the recipe, a conditional update fails as its version
+    // is gone; an unconditional one is applied again on top of the other, up to MAX_UPDATE_ATTEMPTS times, provided
+    // the other update changed none of the fields this one sets.
+    public RecipeUpdateResultDTO updateRecipe(Long id, RecipeUpdateRequestDTO updatedRecipeDTO, Long expectedVersion)
+            throws JsonMappingException {
         Recipe recipe = findRecipeById(id);
+        if (expectedVersion != null && !expectedVersion.equals(recipe.getVersion())) {
+            throw new PreconditionFailedException("Recipe with id: " + id + " is at version " + recipe.getVersion()
+                    + ", not " + expectedVersion);
+        }
 
-        // Handle ingredients
-        List<Ingredient> updatedIngredients = null;
+        Set<String> updatedFields = updatedFields(updatedRecipeDTO);
+        for (int attempt = 1; ; attempt++) {
+            RecipeResponseDT0 readState = recipeMapper.toResponse(recipe);
+            try {
+                return applyUpdate(recipe, updatedRecipeDTO);
+            } catch (ObjectOptimisticLockingFailureException ex) {
+                entityManager.clear();
+                if (expectedVersion != null) {
+                    throw new PreconditionFailedException("Recipe with id: " + id + " was updated after version "
+                            + expectedVersion);
+                }
+                // Start again from the recipe as the other update left it
+                recipe = findRecipeById(id);
+                Set<String> conflictingFields = changedFields(readState, recipeMapper.toResponse(recipe));
+                conflictingFields.retainAll(updatedFields);
+                if (!conflictingFields.isEmpty()) {
+                    throw new ConcurrentUpdateException("Recipe with id: " + id + " was updated concurrently, "
+                            + "conflicting fields: " + conflictingFields);
+                }
+                if (attempt == MAX_UPDATE_ATTEMPTS) {
+                    throw new ConcurrentUpdateException("Recipe with id: " + id + " kept being updated concurrently, "
+                            + "gave up after " + MAX_UPDATE_ATTEMPTS + " attempts");
+                }
+                logger.info("Retrying update after a concurrent update: id={} attempt={}", id, attempt + 1);
+            }
+        }
+    }
+
+    private RecipeUpdateResultDTO applyUpdate(Recipe recipe, RecipeUpdateRequestDTO updatedRecipeDTO)
+            throws JsonMappingException {
+        // Handle ingredients, merged into the recipe's own lines
         if (updatedRecipeDTO.getIngredients()!= null && updatedRecipeDTO.getIngredients().isPresent()) {
             List<IngredientDTO> incomingIngredients = updatedRecipeDTO.getIngredients().get();
 
@@ -76,18 +222,72 @@ public class RecipeManagementService {
             if (updatedRecipeDTO.getRemoveIngredients() != null && !updatedRecipeDTO.getRemoveIngredients().isEmpty()) {
                 ingredientsToRemove = updatedRecipeDTO.getRemoveIngredients().get();
             }
-            updatedIngredients = ingredientService.mergeIngredients(recipe.getIngredients(), incomingIngredients, ingredientsToRemove);
+            ingredientService.mergeIngredients(recipe, incomingIngredients, ingredientsToRemove);
         }
 
-        logger.info("Partial updated request: {} and old recipe: {}", updatedRecipeDTO, recipe);
+        logger.info("Updating recipe: id={} version={}", recipe.getId(), recipe.getVersion());
+        logger.atDebug().setMessage("Partial update request: {} for recipe: {}")
+                .addArgument(() -> updatedRecipeDTO)
+                .addArgument(() -> recipeMapper.toResponse(recipe))
+                .log();
 
         objectMapper.updateValue(recipe, updatedRecipeDTO); // Updates specific fields in Recipe entity
 
-        if(updatedIngredients != null) {
-            recipe.setIngredients(updatedIngredients);
+        Recipe savedRecipe = saveRecipe(recipe);
+        return new RecipeUpdateResultDTO(createApiResponse(savedRecipe, "Recipe's given fields updated"),
+                savedRecipe.getVersion());
+    }
+
+    // Names of the recipe fields an update request sets
+    private static Set<String> updatedFields(RecipeUpdateRequestDTO updatedRecipeDTO) {
+        Set<String> fields = new LinkedHashSet<>();
+        if (updatedRecipeDTO.getName() != null) {
+            fields.add("name");
+        }
+        if (updatedRecipeDTO.getRecipeType() != null) {
+            fields.add("recipeType");
+        }
+        if (updatedRecipeDTO.getServings() != null) {
+            fields.add("servings");
+        }
+        if (updatedRecipeDTO.getIngredients() != null || updatedRecipeDTO.getRemoveIngredients() != null) {
+            fields.add("ingredients");
+        }
+        if (updatedRecipeDTO.getInstructions() != null) {
+            fields.add("instructions");
         }
+        return fields;
+    }
+
+    // Names of the recipe fields that differ between two states of the same recipe
+    private static Set<String> changedFields(RecipeResponseDT0 before, RecipeResponseDT0 after) {
+        Set<String> fields = new LinkedHashSet<>();
+        if (!Objects.equals(before.getName(), after.getName())) {
+            fields.add("name");
+        }
+        if (before.getRecipeType() != after.getRecipeType()) {
+            fields.add("recipeType");
+        }
+        if (!Objects.equals(before.getServings(), after.getServings())) {
+            fields.add("servings");
+        }
+        if (!ingredientValues(before.getIngredients()).equals(ingredientValues(after.getIngredients()))) {
+            fields.add("ingredients");
+        }
+        if (!Objects.equals(before.getInstructions(), after.getInstructions())) {
+            fields.add("instructions");
+        }
+        return fields;
+    }
 
-        return saveRecipeToRepository(recipe, "Recipe's given fields updated");
+    private static List<List<Object>> ingredientValues(List<IngredientDTO> ingredients) {
+        if (ingredients == null) {
+            return List.of();
+        }
+        return ingredients.stream()
+                .map(ingredient -> Arrays.<Object>asList(ingredient.getId(), ingredient.getName(),
+                        ingredient.getQuantity(), ingredient.getUnit()))
+                .collect(Collectors.toList());
     }
 
     // Method to delete a recipe by its id
@@ -96,14 +296,24 @@ public class RecipeManagementService {
             throw new ResourceNotFoundException("Recipe not found with id: " + id);
         }
         recipeRepository.deleteById(id);
+        recipeIndexer.remove(id);
+        recipeCache.evict(id);
+        searchResultCache.invalidateAll();
     }
 
     // Helper method to save a recipe and return a response
     private ApiResponse<String> saveRecipeToRepository(Recipe recipe, String successMessage) {
+        return createApiResponse(saveRecipe(recipe), successMessage);
+    }
+
+    private Recipe saveRecipe(Recipe recipe) {
         recipe.setUpdatedAt(LocalDateTime.now()); // setting updated timestamp
         Recipe savedRecipe = recipeRepository.save(recipe);
-        logger.info("Saving to repository: {}", savedRecipe.getName());
-        return createApiResponse(savedRecipe, successMessage);
+        recipeIndexer.index(savedRecipe);
+        recipeCache.evict(savedRecipe.getId());
+        searchResultCache.invalidateAll();
+        logger.info("Saved recipe: id={} version={}", savedRecipe.getId(), savedRecipe.getVersion());
+        return savedRecipe;
     }
 
     // Helper to find a recipe by ID and handle not found exception
@@ -115,10 +325,12 @@ public class RecipeManagementService {
 
     // Helper method to create an ApiResponse
     private ApiResponse<String> createApiResponse(Recipe recipe, String message) {
-        RecipeResponseDT0 recipeResponse = modelMapper.map(recipe, RecipeResponseDT0.class);
-        logger.info("API response: {}", recipeResponse);
+        RecipeResponseDT0 recipeResponse = recipeMapper.toResponse(recipe);
+        logger.atDebug().setMessage("API response: {}").addArgument(() -> recipeResponse).log();
         return new ApiResponse<>(message, recipeResponse.getName(), true);
     }
 
-
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
 }
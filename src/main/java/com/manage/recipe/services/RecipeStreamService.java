@@ -0,0 +1,68 @@
+package com.manage.recipe.services;
+
+import com.manage.recipe.dto.RecipeResponseDT0;
+import com.manage.recipe.model.IncludeMode;
+import com.manage.recipe.model.RecipeType;
+import com.manage.recipe.repository.RecipeFilterRepository;
+import com.manage.recipe.repository.RecipeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.function.LongFunction;
+
+// Streams the catalogue and search results as Flux of recipes.
+// Both walk the matching ids with a keyset scan in batches of STREAM_BATCH_SIZE, and only when the subscriber asks
+// for more, so a slow or cancelled client never makes the server read further batches. Each batch is read as
+// response projections straight from the database: a stream touches every recipe once, and passing them through
+// the recipe cache would only evict the recipes that are read repeatedly. The blocking repository calls run on the
+// bounded elastic scheduler, not on the subscribing thread.
+@Service
+public class RecipeStreamService {
+
+    public static final int STREAM_BATCH_SIZE = 100;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeFilterRepository recipeFilterRepository;
+
+    // All recipes in id order
+    public Flux<RecipeResponseDT0> streamRecipes() {
+        return keysetScan(cursor -> recipeRepository.findIdsAfter(cursor, Limit.of(STREAM_BATCH_SIZE)));
+    }
+
+    // The recipes matching the filters, in id order. The filters are applied by the database as for a database
+    // search (SearchService.filterRecipes before its indexes are ready), one keyset page of ids per batch.
+    public Flux<RecipeResponseDT0> streamFilteredRecipes(RecipeType recipeType, Integer servings,
+                                                         List<String> includeIngredients,
+                                                         IncludeMode includeMode,
+                                                         List<String> excludeIngredients,
+                                                         String searchInstructions) {
+        IncludeMode mode = includeMode != null ? includeMode : IncludeMode.ANY;
+        return keysetScan(cursor -> recipeFilterRepository.findIdsByDynamicFiltersAfter(recipeType, servings,
+                includeIngredients, mode, excludeIngredients, searchInstructions, cursor, STREAM_BATCH_SIZE));
+    }
+
+    // Reads the next batch of ids after the last id of the previous one, and the recipes of each batch
+    private Flux<RecipeResponseDT0> keysetScan(LongFunction<List<Long>> nextIds) {
+        return Flux.<List<Long>, Long>generate(() -> 0L, (cursor, sink) -> {
+                    List<Long> ids = nextIds.apply(cursor);
+                    if (ids.isEmpty()) {
+                        sink.complete();
+                        return cursor;
+                    }
+                    sink.next(ids);
+                    if (ids.size() < STREAM_BATCH_SIZE) {
+                        sink.complete();
+                    }
+                    return ids.get(ids.size() - 1);
+                })
+                .concatMapIterable(recipeFilterRepository::findResponsesByIds, 1)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
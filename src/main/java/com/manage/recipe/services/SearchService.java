@@ -1,15 +1,26 @@
 package com.manage.recipe.services;
 
+import com.manage.recipe.cache.RecipeCache;
+import com.manage.recipe.cache.SearchResultCache;
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.PantryMatchDTO;
+import com.manage.recipe.dto.PantryResponse;
 import com.manage.recipe.dto.RecipeResponse;
 import com.manage.recipe.dto.RecipeResponseDT0;
-import com.manage.recipe.model.Recipe;
+import com.manage.recipe.exception.InvalidInputException;
+import com.manage.recipe.index.FullTextIndex;
+import com.manage.recipe.index.RecipeIndex;
+import com.manage.recipe.model.IncludeMode;
+import com.manage.recipe.model.RecipeSort;
 import com.manage.recipe.model.RecipeType;
 import com.manage.recipe.repository.RecipeFilterRepository;
-import org.modelmapper.ModelMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,24 +29,206 @@ public class SearchService {
     private RecipeFilterRepository recipeFilterRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private RecipeIndex recipeIndex;
+
+    @Autowired
+    private FullTextIndex fullTextIndex;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private RecipeCache recipeCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public static final int MAX_SEARCH_LIMIT = 500;
+
+    public static final int MAX_PANTRY_MISSING = 5;
+
+    // The ids found (cut to the limit), how many recipes matched before the limit, and whether they came from the
+    // result cache, the indexes or the database
+    private record SearchResult(List<Long> recipeIds, int totalMatches, String source) {
+    }
 
     public RecipeResponse filterRecipes(RecipeType recipeType, Integer servings,
                                         List<String> includeIngredients,
                                         List<String> excludeIngredients,
                                         String searchInstructions) {
+        return filterRecipes(recipeType, servings, includeIngredients, IncludeMode.ANY, excludeIngredients,
+                searchInstructions, null, null, null);
+    }
 
-        List<Recipe> recipes = recipeFilterRepository.findByDynamicFilters(
-                recipeType, servings, includeIngredients, excludeIngredients, searchInstructions
-        );
+    // The matches in the order of `sort` (by default: relevance when searching text, otherwise id), cut to the
+    // first `limit` when given. Only those recipes are loaded; totalRecipes still counts every match.
+    // Timed as `recipe.search`, tagged with which filters and sort were given and where the result came from
+    // (cache, index or database)
+    public RecipeResponse filterRecipes(RecipeType recipeType, Integer servings,
+                                        List<String> includeIngredients,
+                                        IncludeMode includeMode,
+                                        List<String> excludeIngredients,
+                                        String searchInstructions,
+                                        RecipeSort sort, Sort.Direction direction, Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_SEARCH_LIMIT)) {
+            throw new InvalidInputException("Limit must be between 1 and " + MAX_SEARCH_LIMIT + ".");
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        SearchResult result = search(recipeType, servings, includeIngredients, includeMode, excludeIngredients,
+                searchInstructions, sort, direction, limit);
+        List<RecipeResponseDT0> recipes = loadInOrder(result.recipeIds());
+        sample.stop(Timer.builder("recipe.search")
+                .description("SearchService.filterRecipes")
+                .tag("recipeType", String.valueOf(recipeType != null))
+                .tag("servings", String.valueOf(servings != null))
+                .tag("includeIngredients", String.valueOf(includeIngredients != null && !includeIngredients.isEmpty()))
+                .tag("includeMode", String.valueOf(includeMode != null ? includeMode : IncludeMode.ANY))
+                .tag("excludeIngredients", String.valueOf(excludeIngredients != null && !excludeIngredients.isEmpty()))
+                .tag("searchInstructions", String.valueOf(searchInstructions != null && !searchInstructions.isBlank()))
+                .tag("sort", sort != null ? sort.name() : "none")
+                .tag("source", result.source())
+                .register(meterRegistry));
+        return createRecipeResponse(recipes, result.totalMatches());
+    }
+
+    private SearchResult search(RecipeType recipeType, Integer servings,
+                                List<String> includeIngredients,
+                                IncludeMode includeMode,
+                                List<String> excludeIngredients,
+                                String searchInstructions,
+                                RecipeSort sort, Sort.Direction direction, Integer limit) {
+
+        SearchResultCache.SearchKey searchKey = SearchResultCache.SearchKey.of(recipeType, servings,
+                includeIngredients, includeMode, excludeIngredients, searchInstructions, sort, direction, limit);
+        SearchResultCache.CachedResult cached = searchResultCache.get(searchKey);
+        if (cached != null) {
+            return new SearchResult(cached.recipeIds(), cached.totalMatches(), "cache");
+        }
+
+        long generation = searchResultCache.currentGeneration();
+        SearchResult result = findRecipeIdsFromIndexes(recipeType, servings, includeIngredients,
+                searchKey.includeMode(), excludeIngredients, searchInstructions, sort, direction, limit);
+        if (result == null) {
+            // Sorting and the limit are applied by the query
+            List<Long> recipeIds = recipeFilterRepository.findIdsByDynamicFilters(
+                    recipeType, servings, includeIngredients, searchKey.includeMode(), excludeIngredients,
+                    searchInstructions, sort, direction, limit
+            );
+            // A full page may not be all the matches: they are counted by a count query with the same filters
+            int totalMatches = limit != null && recipeIds.size() == limit
+                    ? (int) recipeFilterRepository.countByDynamicFilters(recipeType, servings, includeIngredients,
+                            searchKey.includeMode(), excludeIngredients, searchInstructions)
+                    : recipeIds.size();
+            result = new SearchResult(recipeIds, totalMatches, "database");
+        }
+        searchResultCache.put(searchKey, generation, result.recipeIds(), result.totalMatches());
+        return result;
+    }
+
+    // Returns the matching ids (relevance-ordered when searching text, unless another sort is given), or null
+    // when the indexes cannot answer the query and the database has to be searched instead.
+    private SearchResult findRecipeIdsFromIndexes(RecipeType recipeType, Integer servings,
+                                                List<String> includeIngredients,
+                                                IncludeMode includeMode,
+                                                List<String> excludeIngredients,
+                                                String searchInstructions,
+                                                RecipeSort sort, Sort.Direction direction, Integer limit) {
+        if (!recipeIndex.isReady()) {
+            return null;
+        }
+        if (searchInstructions == null || searchInstructions.isEmpty()) {
+            RecipeIndex.Page page = recipeIndex.page(recipeType, servings, includeIngredients, includeMode,
+                    excludeIngredients, sort, direction, limit);
+            return new SearchResult(page.recipeIds(), page.totalMatches(), "index");
+        }
+        if (!fullTextIndex.isReady()) {
+            return null;
+        }
+
+        Optional<List<Long>> rankedIds = fullTextIndex.search(searchInstructions);
+        if (rankedIds.isEmpty()) {
+            return null;
+        }
+        boolean hasOtherFilters = recipeType != null || servings != null
+                || (includeIngredients != null && !includeIngredients.isEmpty())
+                || (excludeIngredients != null && !excludeIngredients.isEmpty());
+        List<Long> matchingIds = rankedIds.get();
+        if (hasOtherFilters) {
+            Set<Long> filteredIds = new HashSet<>(recipeIndex.filter(recipeType, servings, includeIngredients,
+                    includeMode, excludeIngredients));
+            matchingIds = matchingIds.stream().filter(filteredIds::contains).collect(Collectors.toList());
+        }
+        if (sort != null) {
+            return new SearchResult(recipeIndex.top(matchingIds, includeIngredients, sort, direction, limit),
+                    matchingIds.size(), "index");
+        }
+        return new SearchResult(limit != null && matchingIds.size() > limit ? matchingIds.subList(0, limit)
+                : matchingIds, matchingIds.size(), "index");
+    }
 
-        List<RecipeResponseDT0> recipeResponseList = recipes.stream()
-                .map(recipe -> modelMapper.map(recipe, RecipeResponseDT0.class))
+    // Recipes that can be cooked from the given ingredients with at most `maxMissing` of theirs missing, most
+    // covered first, each with its coverage and missing ingredients. Ranked by the recipe index, or by the
+    // database until the index is ready; not cached, as pantries rarely repeat.
+    // Timed as `recipe.pantry`, tagged with where the result came from (index or database)
+    public PantryResponse findPantryMatches(List<String> pantryIngredients, int maxMissing, Integer limit) {
+        if (pantryIngredients == null || pantryIngredients.stream().allMatch(String::isBlank)) {
+            throw new InvalidInputException("At least one pantry ingredient is required.");
+        }
+        if (maxMissing < 0 || maxMissing > MAX_PANTRY_MISSING) {
+            throw new InvalidInputException("Max missing must be between 0 and " + MAX_PANTRY_MISSING + ".");
+        }
+        if (limit != null && (limit < 1 || limit > MAX_SEARCH_LIMIT)) {
+            throw new InvalidInputException("Limit must be between 1 and " + MAX_SEARCH_LIMIT + ".");
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String source = "index";
+        List<Long> recipeIds;
+        if (recipeIndex.isReady()) {
+            recipeIds = recipeIndex.pantry(pantryIngredients, maxMissing, limit);
+        } else {
+            recipeIds = recipeFilterRepository.findIdsByPantry(pantryIngredients, maxMissing, limit);
+            source = "database";
+        }
+        Set<String> pantry = pantryIngredients.stream().map(String::toLowerCase).collect(Collectors.toSet());
+        List<PantryMatchDTO> matches = loadInOrder(recipeIds).stream()
+                .map(recipe -> pantryMatch(recipe, pantry))
                 .collect(Collectors.toList());
+        sample.stop(Timer.builder("recipe.pantry")
+                .description("SearchService.findPantryMatches")
+                .tag("source", source)
+                .register(meterRegistry));
+        return new PantryResponse(matches, matches.size());
+    }
+
+    private static PantryMatchDTO pantryMatch(RecipeResponseDT0 recipe, Set<String> pantry) {
+        Set<String> ingredientNames = new LinkedHashSet<>();
+        for (IngredientDTO ingredient : recipe.getIngredients()) {
+            ingredientNames.add(ingredient.getName().toLowerCase());
+        }
+        List<String> missing = ingredientNames.stream()
+                .filter(name -> !pantry.contains(name))
+                .collect(Collectors.toList());
+        double coverage = ingredientNames.isEmpty() ? 0
+                : (double) (ingredientNames.size() - missing.size()) / ingredientNames.size();
+        return new PantryMatchDTO(recipe, coverage, missing);
+    }
+
+    // Loads the recipes through the recipe cache and returns them in the order of the given ids.
+    // Uncached recipes are read as response projections, without loading entities.
+    private List<RecipeResponseDT0> loadInOrder(List<Long> recipeIds) {
+        Map<Long, RecipeResponseDT0> recipesById = recipeCache.getAll(recipeIds, missingIds ->
+                recipeFilterRepository.findResponsesByIds(new ArrayList<>(missingIds)).stream()
+                        .collect(Collectors.toMap(RecipeResponseDT0::getId, recipe -> recipe)));
+        return recipeIds.stream()
+                .map(recipesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
+    private RecipeResponse createRecipeResponse(List<RecipeResponseDT0> recipeResponseList, int totalMatches) {
         RecipeResponse response = new RecipeResponse();
         response.setRecipes(recipeResponseList);
-        response.setTotalRecipes(recipeResponseList.size());
+        response.setTotalRecipes(totalMatches);
         return response;
     }
 }
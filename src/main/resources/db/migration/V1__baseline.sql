@@ -0,0 +1,29 @@
+-- Schema as Hibernate generated it before migrations were introduced: identity ids, and the quantity and unit
+-- of an ingredient stored on the ingredient itself.
+-- Databases created back then are baselined at this version (spring.flyway.baseline-on-migrate).
+create table ingredient (
+    quantity float(53),
+    id bigint generated by default as identity,
+    name varchar(255),
+    unit varchar(255),
+    primary key (id)
+);
+
+create table recipe (
+    servings integer,
+    created_at timestamp(6),
+    id bigint generated by default as identity,
+    updated_at timestamp(6),
+    instructions TEXT,
+    name varchar(255),
+    recipe_type enum ('NON_VEGETARIAN','VEGAN','VEGETARIAN'),
+    primary key (id)
+);
+
+create table recipe_ingredient (
+    ingredient_id bigint not null,
+    recipe_id bigint not null
+);
+
+alter table if exists recipe_ingredient add constraint FK9b3oxoskt0chwqxge0cnlkc29 foreign key (ingredient_id) references ingredient;
+alter table if exists recipe_ingredient add constraint FKgu1oxq7mbcgkx5dah6o8geirh foreign key (recipe_id) references recipe;
@@ -0,0 +1,57 @@
+-- Quantity and unit move from the shared ingredient to one line per recipe and ingredient,
+-- and the ingredient table becomes a dictionary with one row per (lowercase) name.
+-- Ids come from sequences instead of identity columns, and recipes get a version.
+
+-- Hibernate takes ids in blocks of 50 ending at the sequence value, so the first block starts right after the
+-- highest existing id
+create sequence ingredient_seq start with 1 increment by 50;
+alter sequence ingredient_seq restart with (select coalesce(max(id), 0) + 50 from ingredient);
+alter table ingredient alter column id drop identity;
+
+create sequence recipe_seq start with 1 increment by 50;
+alter sequence recipe_seq restart with (select coalesce(max(id), 0) + 50 from recipe);
+alter table recipe alter column id drop identity;
+
+alter table recipe add column version bigint;
+update recipe set version = 0;
+
+create sequence recipe_ingredient_line_seq start with 1 increment by 50;
+
+create table recipe_ingredient_line (
+    quantity float(53),
+    id bigint not null,
+    ingredient_id bigint not null,
+    recipe_id bigint not null,
+    unit varchar(255),
+    primary key (id)
+);
+
+-- Ingredients whose names differ only in case become the one with the lowest id
+create table ingredient_merge as
+select i.id as old_id,
+       coalesce((select min(d.id) from ingredient d where lower(d.name) = lower(i.name)), i.id) as new_id
+from ingredient i;
+
+-- Every recipe gets the quantity and unit its ingredient had, in the order the ingredients were created.
+-- Ids come from the line sequence, so Hibernate continues after them.
+insert into recipe_ingredient_line (id, recipe_id, ingredient_id, quantity, unit)
+select next value for recipe_ingredient_line_seq, l.recipe_id, l.new_id, l.quantity, l.unit
+from (select ri.recipe_id, ri.ingredient_id, m.new_id, i.quantity, i.unit
+      from recipe_ingredient ri
+      join ingredient i on i.id = ri.ingredient_id
+      join ingredient_merge m on m.old_id = i.id
+      order by ri.recipe_id, ri.ingredient_id) l;
+
+drop table recipe_ingredient;
+
+delete from ingredient where id not in (select new_id from ingredient_merge);
+drop table ingredient_merge;
+
+update ingredient set name = lower(name);
+alter table ingredient drop column quantity;
+alter table ingredient drop column unit;
+alter table ingredient alter column name set not null;
+alter table ingredient add constraint uk_ingredient_name unique (name);
+
+alter table recipe_ingredient_line add constraint fk_recipe_ingredient_line_recipe foreign key (recipe_id) references recipe;
+alter table recipe_ingredient_line add constraint fk_recipe_ingredient_line_ingredient foreign key (ingredient_id) references ingredient;
@@ -0,0 +1,9 @@
+-- Index for the database search path (RecipeRepositoryImpl.findIdsByDynamicFilters).
+-- Ingredient names are already indexed by uk_ingredient_name; names are stored lower-case, so the search
+-- compares them as they are and can use it.
+
+-- Include and exclude filters go from the ingredient to its recipes: with both columns in the index the
+-- recipe ids are read from the index alone (H2's own index of the ingredient_id foreign key has only that column).
+-- recipe_type and servings are not indexed: the id query is ordered by id, and reading the primary key in that
+-- order lets a limited search stop after its first page (see src/jmh/search-indexes.md).
+create index idx_recipe_ingredient_line_ingredient_recipe on recipe_ingredient_line (ingredient_id, recipe_id);
@@ -0,0 +1,73 @@
+package com.manage.recipe;
+
+import com.manage.recipe.index.FullTextIndex;
+import com.manage.recipe.index.TextAnalyzer;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FullTextIndexTest {
+
+    private FullTextIndex fullTextIndex;
+
+    @BeforeEach
+    void setUp() {
+        fullTextIndex = new FullTextIndex();
+        fullTextIndex.index(recipe(1L, "Tomato soup", "Chop the tomatoes, boil them and season with salt and pepper."));
+        fullTextIndex.index(recipe(2L, "Pancakes", "Mix flour and milk, then bake on a hot pan. Add salt."));
+        fullTextIndex.index(recipe(3L, "Salt crusted fish", "Cover the fish with salt and bake it."));
+    }
+
+    private Recipe recipe(Long id, String name, String instructions) {
+        return new Recipe(id, name, RecipeType.VEGETARIAN, 2, new ArrayList<>(), instructions,
+                LocalDateTime.now(), LocalDateTime.now(), null);
+    }
+
+    @Test
+    void analyze_ShouldLowerCaseStemAndDropStopWords() {
+        List<TextAnalyzer.Token> tokens = TextAnalyzer.analyze("Chopped the Tomatoes");
+
+        assertEquals(List.of(new TextAnalyzer.Token("chop", 0), new TextAnalyzer.Token("tomato", 2)), tokens);
+    }
+
+    @Test
+    void search_ShouldRequireAllTermsAndMatchStemmedForms() {
+        assertEquals(Optional.of(List.of(1L)), fullTextIndex.search("chopping tomato"));
+        assertEquals(List.of(3L, 2L), fullTextIndex.search("baking salt").orElseThrow());
+        assertTrue(fullTextIndex.search("salt butter").orElseThrow().isEmpty());
+    }
+
+    @Test
+    void search_ShouldRankNameMatchesFirst() {
+        assertEquals(3L, fullTextIndex.search("salt").orElseThrow().get(0));
+    }
+
+    @Test
+    void search_ShouldMatchPhrasesOnlyInOrder() {
+        assertEquals(List.of(1L), fullTextIndex.search("\"salt and pepper\"").orElseThrow());
+        assertTrue(fullTextIndex.search("\"pepper and salt\"").orElseThrow().isEmpty());
+    }
+
+    @Test
+    void search_ShouldReturnEmpty_WhenQueryHasOnlyStopWords() {
+        assertTrue(fullTextIndex.search("the and").isEmpty());
+    }
+
+    @Test
+    void index_ShouldReplaceAndRemoveRecipes() {
+        fullTextIndex.index(recipe(2L, "Pancakes", "Whisk eggs."));
+        assertEquals(List.of(3L, 1L), fullTextIndex.search("salt").orElseThrow());
+
+        fullTextIndex.remove(3L);
+        assertEquals(List.of(1L), fullTextIndex.search("salt").orElseThrow());
+    }
+}
@@ -0,0 +1,50 @@
+package com.manage.recipe;
+
+import com.manage.recipe.controllers.IngredientController;
+import com.manage.recipe.dto.IngredientSuggestionDTO;
+import com.manage.recipe.exception.InvalidInputException;
+import com.manage.recipe.services.IngredientService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(IngredientController.class)
+class IngredientControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private IngredientService ingredientService;
+
+    @Test
+    void autocomplete_ShouldReturnSuggestions() throws Exception {
+        Mockito.when(ingredientService.suggestIngredients("tom", 10))
+                .thenReturn(List.of(new IngredientSuggestionDTO("tomato", 12),
+                        new IngredientSuggestionDTO("tomato paste", 3)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/ingredients/autocomplete").param("q", "tom"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("tomato"))
+                .andExpect(jsonPath("$[0].recipeCount").value(12))
+                .andExpect(jsonPath("$[1].name").value("tomato paste"));
+    }
+
+    @Test
+    void autocomplete_ShouldReturnBadRequest_WhenLimitIsInvalid() throws Exception {
+        Mockito.when(ingredientService.suggestIngredients("tom", 0))
+                .thenThrow(new InvalidInputException("Limit must be between 1 and 50."));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/ingredients/autocomplete")
+                        .param("q", "tom").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,74 @@
+package com.manage.recipe;
+
+import com.manage.recipe.index.IngredientNameIndex;
+import com.manage.recipe.index.IngredientNameIndex.Suggestion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IngredientNameIndexTest {
+
+    private IngredientNameIndex ingredientNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        ingredientNameIndex = new IngredientNameIndex();
+        ingredientNameIndex.add(List.of("Tomato", "tomato paste", "potato", "tofu", "thyme", "salt"));
+        useInRecipes("tomato", 5);
+        useInRecipes("tomato paste", 2);
+        useInRecipes("potato", 3);
+        useInRecipes("tofu", 1);
+        useInRecipes("salt", 4);
+    }
+
+    private void useInRecipes(String name, int recipes) {
+        for (int i = 0; i < recipes; i++) {
+            ingredientNameIndex.updateRecipeCounts(Set.of(), Set.of(name));
+        }
+    }
+
+    private List<String> suggest(String input, int limit) {
+        return ingredientNameIndex.suggest(input, limit).stream().map(Suggestion::name).toList();
+    }
+
+    @Test
+    void suggest_ShouldCompletePrefix_MostUsedFirst() {
+        assertEquals(List.of("tomato", "tomato paste", "tofu"), suggest("TO", 10));
+        assertEquals(List.of("tomato", "tomato paste"), suggest("to", 2));
+        assertEquals(List.of(new Suggestion("thyme", 0)), ingredientNameIndex.suggest("th", 10));
+    }
+
+    @Test
+    void suggest_ShouldMatchMisspeltNames_AfterExactPrefixes() {
+        assertEquals(List.of("tomato", "tomato paste"), suggest("tomatp", 10));
+        assertEquals(List.of("salt"), suggest("slat", 10));
+        assertEquals("potato", suggest("ptoato", 10).get(0));
+        assertEquals(List.of("tofu"), suggest("tofo", 10));
+    }
+
+    @Test
+    void suggest_ShouldOnlyMatchExactly_WhenInputIsShort() {
+        assertEquals(List.of(), suggest("sx", 10));
+        assertEquals(List.of("salt"), suggest("sa", 10));
+    }
+
+    @Test
+    void addAndUpdateRecipeCounts_ShouldChangeSuggestionsIncrementally() {
+        ingredientNameIndex.add(List.of("Basil", "tomato"));
+        assertEquals(7, ingredientNameIndex.size());
+        assertEquals(List.of(new Suggestion("basil", 0)), ingredientNameIndex.suggest("bas", 10));
+
+        // A recipe moving from tomato to tofu and basil
+        ingredientNameIndex.updateRecipeCounts(Set.of("tomato", "salt"), Set.of("tofu", "basil", "salt"));
+        useInRecipes("tofu", 2);
+
+        assertEquals(List.of(new Suggestion("basil", 1)), ingredientNameIndex.suggest("bas", 10));
+        assertEquals(List.of(new Suggestion("tofu", 4), new Suggestion("tomato", 4),
+                new Suggestion("tomato paste", 2)), ingredientNameIndex.suggest("to", 10));
+        assertEquals(List.of(new Suggestion("salt", 4)), ingredientNameIndex.suggest("sal", 10));
+    }
+}
@@ -4,7 +4,12 @@ import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.IngredientSuggestionDTO;
+import com.manage.recipe.exception.InvalidInputException;
+import com.manage.recipe.index.IngredientNameIndex;
 import com.manage.recipe.model.Ingredient;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeIngredient;
 import com.manage.recipe.repository.IngredientRepository;
 import com.manage.recipe.services.IngredientService;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,123 +17,230 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class IngredientServiceTest {
 
     @Mock
     private IngredientRepository ingredientRepository;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private IngredientNameIndex ingredientNameIndex = new IngredientNameIndex();
+
     @InjectMocks
     private IngredientService ingredientService;
 
-    private List<Ingredient> existingIngredients;
+    private Recipe recipe;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        existingIngredients = new ArrayList<>();
+        recipe = new Recipe();
+        // Saved ingredients get ids, as the database would give them
+        AtomicLong nextId = new AtomicLong(100);
+        when(ingredientRepository.saveAllAndFlush(any())).thenAnswer(invocation -> {
+            List<Ingredient> saved = new ArrayList<>();
+            for (Ingredient ingredient : invocation.<Iterable<Ingredient>>getArgument(0)) {
+                ingredient.setId(nextId.getAndIncrement());
+                saved.add(ingredient);
+            }
+            return saved;
+        });
     }
 
     @Test
     void findOrCreateIngredient_ShouldReturnExistingIngredient_WhenIngredientExistsById() {
         Long existingId = 1L;
         IngredientDTO ingredientDTO = new IngredientDTO(existingId, "Sugar", 1.0, "cup");
-        Ingredient existingIngredient = new Ingredient("sugar", 1.0, "cup");
+        Ingredient existingIngredient = new Ingredient(existingId, "sugar");
 
         // Mock behavior
-        when(ingredientRepository.findById(existingId)).thenReturn(Optional.of(existingIngredient));
+        when(ingredientRepository.findAllById(Set.of(existingId))).thenReturn(List.of(existingIngredient));
 
         Ingredient result = ingredientService.findOrCreateIngredient(ingredientDTO);
 
 
         assertEquals(existingIngredient, result);
-        verify(ingredientRepository, times(1)).findById(existingId);
-        verify(ingredientRepository, never()).findByName(anyString());
-        verify(ingredientRepository, never()).save(any());
+        verify(ingredientRepository, times(1)).findAllById(Set.of(existingId));
+        verify(ingredientRepository, never()).findByNameIn(any());
+        verify(ingredientRepository, never()).saveAllAndFlush(any());
     }
 
     @Test
     void findOrCreateIngredient_ShouldReturnExistingIngredient_WhenIngredientExistsByName() {
         String ingredientName = "salt";
-        IngredientDTO ingredientDTO = new IngredientDTO(null, ingredientName, 1.0, "teaspoon");
-        Ingredient existingIngredient = new Ingredient(ingredientName.toLowerCase(), 1.0, "teaspoon");
+        IngredientDTO ingredientDTO = new IngredientDTO(null, "Salt", 1.0, "teaspoon");
+        Ingredient existingIngredient = new Ingredient(2L, ingredientName);
 
-        when(ingredientRepository.findByName(ingredientName.toLowerCase())).thenReturn(Optional.of(existingIngredient));
+        when(ingredientRepository.findByNameIn(Set.of(ingredientName))).thenReturn(List.of(existingIngredient));
 
         Ingredient result = ingredientService.findOrCreateIngredient(ingredientDTO);
 
         assertEquals(existingIngredient, result);
-        verify(ingredientRepository, times(1)).findByName(ingredientName.toLowerCase());
-        verify(ingredientRepository, never()).findById(anyLong());
-        verify(ingredientRepository, never()).save(any());
+        verify(ingredientRepository, times(1)).findByNameIn(Set.of(ingredientName));
+        verify(ingredientRepository, never()).findAllById(any());
+        verify(ingredientRepository, never()).saveAllAndFlush(any());
     }
 
     @Test
     void findOrCreateIngredient_ShouldCreateNewIngredient_WhenNoExistingIngredient() {
-        IngredientDTO ingredientDTO = new IngredientDTO(null, "flour", 1.0, "kg");
+        IngredientDTO ingredientDTO = new IngredientDTO(null, "Flour", 1.0, "kg");
 
-        // Mock behavior for both findById and findByName to return empty
-        when(ingredientRepository.findById(anyLong())).thenReturn(Optional.empty());
-        when(ingredientRepository.findByName("flour")).thenReturn(Optional.empty());
+        Ingredient result = ingredientService.findOrCreateIngredient(ingredientDTO);
 
-        Ingredient newIngredient = new Ingredient("flour", 1.0, "kg");
-        when(ingredientRepository.save(any())).thenReturn(newIngredient);
+        assertEquals("flour", result.getName());
+        verify(ingredientRepository, times(1)).saveAllAndFlush(argThat(saved -> saved.spliterator().getExactSizeIfKnown() == 1));
+    }
 
-        Ingredient result = ingredientService.findOrCreateIngredient(ingredientDTO);
+    @Test
+    void findOrCreateIngredientList_ShouldResolveAllIngredientsInBatches_AndKeepInputOrder() {
+        Ingredient sugar = new Ingredient(1L, "sugar");
+        Ingredient salt = new Ingredient(2L, "salt");
+        List<IngredientDTO> ingredientDTOs = Arrays.asList(
+                new IngredientDTO(null, "Flour", 1.0, "kg"),
+                new IngredientDTO(1L, "Sugar", 1.0, "cup"),
+                new IngredientDTO(null, "Salt", 1.0, "teaspoon"),
+                new IngredientDTO(null, "flour", 2.0, "kg"));
+
+        when(ingredientRepository.findAllById(Set.of(1L))).thenReturn(List.of(sugar));
+        when(ingredientRepository.findByNameIn(Set.of("flour", "salt"))).thenReturn(List.of(salt));
+
+        List<Ingredient> result = ingredientService.findOrCreateIngredientList(ingredientDTOs);
+
+        assertEquals(4, result.size());
+        assertEquals("flour", result.get(0).getName());
+        assertSame(sugar, result.get(1));
+        assertSame(salt, result.get(2));
+        assertSame(result.get(0), result.get(3)); // repeated new name is created only once
+        verify(ingredientRepository, times(1)).saveAllAndFlush(argThat(saved -> saved.spliterator().getExactSizeIfKnown() == 1));
+        verify(ingredientRepository, never()).findByName(anyString());
+    }
+
+    @Test
+    void findOrCreateIngredientList_ShouldNotQueryDatabase_WhenIngredientsAreInDictionary() {
+        Ingredient sugar = new Ingredient(1L, "sugar");
+        Ingredient salt = new Ingredient(2L, "salt");
+        when(ingredientRepository.findAll()).thenReturn(List.of(sugar, salt));
+        ingredientService.warmUp();
+
+        List<Ingredient> result = ingredientService.findOrCreateIngredientList(List.of(
+                new IngredientDTO(1L, "Sugar", 1.0, "cup"),
+                new IngredientDTO(null, "SALT", 1.0, "teaspoon")));
+
+        assertEquals(List.of(sugar, salt), result);
+        verify(ingredientRepository, times(1)).findAll();
+        verifyNoMoreInteractions(ingredientRepository);
+    }
 
-        assertEquals(newIngredient.getName(), result.getName());
-        assertEquals(newIngredient.getQuantity(), result.getQuantity());
-        assertEquals(newIngredient.getUnit(), result.getUnit());
-        verify(ingredientRepository, times(1)).save(any());
+    @Test
+    void findOrCreateIngredientList_ShouldUseConcurrentlyCreatedIngredient_WhenInsertIsRejected() {
+        Ingredient createdByOtherRequest = new Ingredient(7L, "basil");
+        when(ingredientRepository.findByNameIn(Set.of("basil")))
+                .thenReturn(List.of()) // not there when looked up
+                .thenReturn(List.of(createdByOtherRequest)); // committed by the other request before our insert
+        doThrow(new DataIntegrityViolationException("Unique index or primary key violation"))
+                .when(ingredientRepository).saveAllAndFlush(any());
+
+        List<Ingredient> result = ingredientService.findOrCreateIngredientList(List.of(
+                new IngredientDTO(null, "Basil", 1.0, "g")));
+
+        assertSame(createdByOtherRequest, result.get(0));
+        verify(ingredientRepository, times(1)).saveAllAndFlush(any());
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    @Test
+    void suggestIngredients_ShouldSuggestLoadedAndCreatedNames() {
+        when(ingredientRepository.findAll()).thenReturn(List.of(new Ingredient(1L, "basil")));
+        ingredientService.warmUp();
+        ingredientService.findOrCreateIngredient(new IngredientDTO(null, "Basmati rice", 1.0, "cup"));
+
+        List<IngredientSuggestionDTO> suggestions = ingredientService.suggestIngredients("bas", 10);
+
+        assertEquals(List.of("basil", "basmati rice"),
+                suggestions.stream().map(IngredientSuggestionDTO::getName).toList());
+        assertEquals(List.of("basmati rice"),
+                ingredientService.suggestIngredients("basmatti", 10).stream()
+                        .map(IngredientSuggestionDTO::getName).toList());
+    }
+
+    @Test
+    void suggestIngredients_ShouldRejectBlankQueryAndInvalidLimit() {
+        assertThrows(InvalidInputException.class, () -> ingredientService.suggestIngredients(" ", 10));
+        assertThrows(InvalidInputException.class, () -> ingredientService.suggestIngredients("bas", 0));
+        assertThrows(InvalidInputException.class,
+                () -> ingredientService.suggestIngredients("bas", IngredientService.MAX_SUGGESTIONS + 1));
     }
 
     @Test
-    void mergeIngredients_ShouldUpdateExistingIngredient_WhenMatchingIdFound() {
+    void mergeIngredients_ShouldUpdateExistingLine_WhenMatchingIdFound() {
         // Setup existing ingredients
-        Ingredient existingIngredient = new Ingredient("Sugar", 1.0, "cup");
-        existingIngredient.setId(1L);
-        existingIngredients.add(existingIngredient);
+        Ingredient sugar = new Ingredient(1L, "sugar");
+        recipe.addIngredient(sugar, 1.0, "cup");
 
         // Incoming ingredients
         List<IngredientDTO> incomingIngredients = Arrays.asList(new IngredientDTO(1L, "Sugar", 2.0, "kg"));
 
-        List<Ingredient> result = ingredientService.mergeIngredients(existingIngredients, incomingIngredients, null);
+        List<RecipeIngredient> result = ingredientService.mergeIngredients(recipe, incomingIngredients, null);
 
         assertEquals(1, result.size());
         assertEquals(2.0, result.get(0).getQuantity()); // checking if quantity is updated
         assertEquals("kg", result.get(0).getUnit()); // checking if unit is updated
+        assertSame(sugar, result.get(0).getIngredient()); // the shared ingredient is kept as is
+        verifyNoInteractions(ingredientRepository);
+    }
+
+    @Test
+    void mergeIngredients_ShouldPointLineToOtherIngredient_WhenRenamed() {
+        Ingredient sugar = new Ingredient(1L, "sugar");
+        Ingredient honey = new Ingredient(2L, "honey");
+        recipe.addIngredient(sugar, 1.0, "cup");
+        when(ingredientRepository.findByNameIn(Set.of("honey"))).thenReturn(List.of(honey));
+
+        List<RecipeIngredient> result = ingredientService.mergeIngredients(recipe,
+                List.of(new IngredientDTO(1L, "Honey", null, null)), null);
+
+        assertEquals(1, result.size());
+        assertSame(honey, result.get(0).getIngredient());
+        assertEquals(1.0, result.get(0).getQuantity()); // quantity and unit stay with the line
+        assertEquals("cup", result.get(0).getUnit());
+        assertEquals("sugar", sugar.getName()); // other recipes using sugar are not affected
     }
 
     @Test
-    void mergeIngredients_ShouldAddNewIngredient_WhenNoMatchingIdOrNameFound() {
+    void mergeIngredients_ShouldAddNewLine_WhenNoMatchingIdOrNameFound() {
         // Setup existing ingredients
-        Ingredient existingIngredient = new Ingredient("Sugar", 1.0, "cup");
-        existingIngredient.setId(1L);
-        existingIngredients.add(existingIngredient);
+        recipe.addIngredient(new Ingredient(1L, "sugar"), 1.0, "cup");
 
         // Incoming ingredients
         List<IngredientDTO> incomingIngredients = Arrays.asList(new IngredientDTO(null, "Flour", 1.0, "kg"));
 
-        List<Ingredient> result = ingredientService.mergeIngredients(existingIngredients, incomingIngredients, null);
+        List<RecipeIngredient> result = ingredientService.mergeIngredients(recipe, incomingIngredients, null);
 
-        assertEquals(2, result.size()); // One existing and one new ingredient
-        assertEquals("flour", result.get(1).getName()); // New ingredient name should be "Flour"
+        assertEquals(2, result.size()); // One existing and one new line
+        assertEquals("flour", result.get(1).getIngredient().getName()); // New ingredient name should be "flour"
         assertEquals(1.0, result.get(1).getQuantity()); // Check quantity
+        assertSame(recipe, result.get(1).getRecipe());
+        verify(ingredientRepository, times(1)).saveAllAndFlush(anyCollection());
     }
 
     @Test
-    void mergeIngredients_ShouldUpdateExistingIngredient_WhenFoundByName() {
+    void mergeIngredients_ShouldUpdateExistingLine_WhenFoundByName() {
         // Define existing ingredients
-        Ingredient existingIngredient = new Ingredient("Sugar", 1.0, "cup");
-        existingIngredient.setId(1L);
-        existingIngredients.add(existingIngredient);
+        recipe.addIngredient(new Ingredient(1L, "sugar"), 1.0, "cup");
 
         // Incoming ingredients
-        List<IngredientDTO> incomingIngredients = Arrays.asList(new IngredientDTO(null, "sugar", 2.0, "kg"));
+        List<IngredientDTO> incomingIngredients = Arrays.asList(new IngredientDTO(null, "Sugar", 2.0, "kg"));
 
-        List<Ingredient> result = ingredientService.mergeIngredients(existingIngredients, incomingIngredients, null);
+        List<RecipeIngredient> result = ingredientService.mergeIngredients(recipe, incomingIngredients, null);
 
         assertEquals(1, result.size());
         assertEquals(2.0, result.get(0).getQuantity()); // Quantity should be updated
@@ -136,21 +248,17 @@ public class IngredientServiceTest {
     }
 
     @Test
-    void mergeIngredients_ShouldRemoveSpecifiedIngredients_WhenNamesMatched() {
+    void mergeIngredients_ShouldRemoveSpecifiedLines_WhenNamesMatched() {
         // Setup existing ingredients
-        Ingredient existingIngredient1 = new Ingredient( "Sugar", 1.0, "cup");
-        existingIngredient1.setId(1L);
-        Ingredient existingIngredient2 = new Ingredient("Flour", 1.0, "kg");
-        existingIngredient2.setId(2L);
-        existingIngredients.add(existingIngredient1);
-        existingIngredients.add(existingIngredient2);
+        recipe.addIngredient(new Ingredient(1L, "sugar"), 1.0, "cup");
+        recipe.addIngredient(new Ingredient(2L, "flour"), 1.0, "kg");
 
         // Names of ingredients to remove
-        List<String> removeIngredients = Collections.singletonList("sugar");
+        List<String> removeIngredients = Collections.singletonList("Sugar");
 
-        List<Ingredient> result = ingredientService.mergeIngredients(existingIngredients, null, removeIngredients);
+        List<RecipeIngredient> result = ingredientService.mergeIngredients(recipe, null, removeIngredients);
 
-        assertEquals(1, result.size()); // Only one ingredient should remain
-        assertEquals("Flour", result.get(0).getName()); // Flour should be the remaining ingredient
+        assertEquals(1, result.size()); // Only one line should remain
+        assertEquals("flour", result.get(0).getIngredient().getName()); // Flour should be the remaining ingredient
     }
 }
@@ -0,0 +1,50 @@
+package com.manage.recipe;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void request_ShouldRecordSqlStatementsAndServiceTimers() throws Exception {
+        mockMvc.perform(get("/api/recipes").param("limit", "10")).andExpect(status().isOk());
+
+        DistributionSummary statements = meterRegistry.find("http.server.requests.sql.statements")
+                .tag("uri", "/api/recipes").tag("method", "GET").summary();
+        assertNotNull(statements);
+        assertTrue(statements.totalAmount() >= 2); // the page and the count query
+        assertNotNull(meterRegistry.find("recipe.service").tag("method", "getRecipesPage").timer());
+    }
+
+    @Test
+    void loggersEndpoint_ShouldNotBeExposed_WithoutOpsProfile() throws Exception {
+        mockMvc.perform(post("/actuator/loggers/org.hibernate.SQL")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"configuredLevel\": \"DEBUG\"}"))
+                .andExpect(result -> assertTrue(result.getResponse().getStatus() >= 400));
+
+        assertFalse(LoggerFactory.getLogger("org.hibernate.SQL").isDebugEnabled());
+    }
+}
@@ -0,0 +1,82 @@
+package com.manage.recipe;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the Flyway migrations on a database holding data in the schema of version 1
+class MigrationTest {
+
+    private DriverManagerDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:migration-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+                "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    private void migrate(String target) {
+        Flyway.configure().dataSource(dataSource).target(target).load().migrate();
+    }
+
+    @Test
+    void migrate_ShouldMoveQuantitiesToRecipeLines_AndMergeIngredientsByName() {
+        migrate("1");
+        jdbcTemplate.update("insert into recipe (name, servings) values ('Soup', 2), ('Stew', 4)");
+        jdbcTemplate.update("insert into ingredient (id, name, quantity, unit) values "
+                + "(1, 'Salt', 1.0, 'g'), (2, 'salt', 3.0, 'g'), (3, 'Water', 500.0, 'ml')");
+        jdbcTemplate.update("insert into recipe_ingredient (recipe_id, ingredient_id) values (1, 1), (1, 3), (2, 2)");
+
+        migrate("latest");
+
+        assertEquals(List.of(Map.of("ID", 1L, "NAME", "salt"), Map.of("ID", 3L, "NAME", "water")),
+                jdbcTemplate.queryForList("select id, name from ingredient order by id"));
+        assertEquals(List.of(
+                        Map.of("RECIPE_ID", 1L, "INGREDIENT_ID", 1L, "QUANTITY", 1.0, "UNIT", "g"),
+                        Map.of("RECIPE_ID", 1L, "INGREDIENT_ID", 3L, "QUANTITY", 500.0, "UNIT", "ml"),
+                        Map.of("RECIPE_ID", 2L, "INGREDIENT_ID", 1L, "QUANTITY", 3.0, "UNIT", "g")),
+                jdbcTemplate.queryForList("select recipe_id, ingredient_id, quantity, unit from recipe_ingredient_line "
+                        + "order by id"));
+    }
+
+    @Test
+    void migrate_ShouldVersionRecipes_AndContinueIdsAfterTheIdentityOnes() {
+        migrate("1");
+        jdbcTemplate.update("insert into recipe (name, servings) values ('Soup', 2), ('Stew', 4)");
+        jdbcTemplate.update("insert into ingredient (name, quantity, unit) values ('Salt', 1.0, 'g')");
+
+        migrate("latest");
+
+        assertEquals(List.of(0L, 0L), jdbcTemplate.queryForList("select version from recipe order by id", Long.class));
+        // Hibernate's first block of 50 ids ends at the sequence value
+        assertEquals(52L, jdbcTemplate.queryForObject("select next value for recipe_seq", Long.class));
+        assertEquals(51L, jdbcTemplate.queryForObject("select next value for ingredient_seq", Long.class));
+    }
+
+    @Test
+    void migrate_ShouldIndexTheSearchColumns() {
+        migrate("latest");
+
+        List<String> indexedColumns = jdbcTemplate.queryForList("select i.table_name || '(' || "
+                + "listagg(c.column_name, ',') within group (order by c.ordinal_position) || ')' "
+                + "from information_schema.indexes i join information_schema.index_columns c "
+                + "on c.index_name = i.index_name and c.table_name = i.table_name "
+                + "where i.table_schema = 'PUBLIC' group by i.table_name, i.index_name", String.class);
+        assertTrue(indexedColumns.containsAll(List.of("INGREDIENT(NAME)",
+                "RECIPE_INGREDIENT_LINE(INGREDIENT_ID,RECIPE_ID)", "RECIPE_INGREDIENT_LINE(RECIPE_ID)")),
+                indexedColumns.toString());
+        assertEquals(new HashSet<>(indexedColumns).size(), indexedColumns.size(), "duplicate indexes: " + indexedColumns);
+    }
+}
@@ -0,0 +1,107 @@
+package com.manage.recipe;
+
+import com.manage.recipe.cache.RecipeCache;
+import com.manage.recipe.dto.CacheStatsDTO;
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.RecipeResponseDT0;
+import com.manage.recipe.model.RecipeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RecipeCacheTest {
+
+    private RecipeCache recipeCache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        recipeCache = new RecipeCache(100, Duration.ofMinutes(1));
+    }
+
+    private RecipeResponseDT0 load(Long id) {
+        loads.incrementAndGet();
+        // Every recipe uses the same shared ingredient
+        return new RecipeResponseDT0(id, "Recipe " + id, RecipeType.VEGAN, 2,
+                List.of(new IngredientDTO(100L, "salt", 1.0, "g")), "Mix", 1L);
+    }
+
+    @Test
+    void get_ShouldLoadOnce_AndCountHitsAndMisses() {
+        recipeCache.get(1L, this::load);
+        recipeCache.get(1L, this::load);
+        recipeCache.get(1L, this::load);
+
+        CacheStatsDTO stats = recipeCache.stats();
+        assertEquals(1, loads.get());
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    void evict_ShouldNotEvictOtherRecipes_UsingTheSameIngredient() {
+        recipeCache.get(1L, this::load);
+        recipeCache.get(2L, this::load);
+
+        recipeCache.evict(1L);
+        recipeCache.get(1L, this::load);
+        recipeCache.get(2L, this::load);
+
+        assertEquals(3, loads.get()); // 1 reloaded, 2 still cached
+    }
+
+    @Test
+    void evict_ShouldForceReload() {
+        recipeCache.get(1L, this::load);
+        recipeCache.evict(1L);
+        recipeCache.get(1L, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_ShouldNotCacheLoad_ThatOverlappedAnEviction() {
+        recipeCache.get(1L, id -> {
+            recipeCache.evict(id); // a write lands while the recipe is being loaded
+            return load(id);
+        });
+        recipeCache.get(1L, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_ShouldCacheLoad_WhenOnlyOtherRecipesWereEvictedMeanwhile() {
+        recipeCache.get(1L, id -> {
+            recipeCache.evict(2L); // writes to other recipes land while this one is being loaded
+            return load(id);
+        });
+        recipeCache.getAll(List.of(1L, 3L), ids -> {
+            recipeCache.evict(4L);
+            return Map.of(3L, load(3L));
+        });
+        recipeCache.get(1L, this::load);
+        recipeCache.get(3L, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getAll_ShouldNotCacheLoad_ThatOverlappedAnEvictionOfTheSameRecipe() {
+        recipeCache.getAll(List.of(1L, 2L), ids -> {
+            recipeCache.evict(2L);
+            return Map.of(1L, load(1L), 2L, load(2L));
+        });
+        recipeCache.get(1L, this::load);
+        recipeCache.get(2L, this::load);
+
+        assertEquals(3, loads.get()); // 1 cached, 2 reloaded
+    }
+}
@@ -0,0 +1,129 @@
+package com.manage.recipe;
+
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.RecipeRequestDTO;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeType;
+import com.manage.recipe.repository.RecipeRepository;
+import com.manage.recipe.services.IngredientService;
+import com.manage.recipe.services.RecipeManagementService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Two PATCH requests on the same recipe, the second one saved while the first is between reading and saving it
+@SpringBootTest
+@AutoConfigureMockMvc
+class RecipeConcurrentUpdateTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RecipeManagementService recipeManagementService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @SpyBean
+    private IngredientService ingredientService;
+
+    @Test
+    void patch_ShouldApplyBothUpdates_WhenConcurrentUpdateChangedOtherFields() throws Exception {
+        Recipe recipe = createRecipe("Concurrent soup");
+        long version = recipe.getVersion();
+
+        patchWhileAnotherPatchIsSaved(recipe.getId(), "{\"name\": \"Renamed soup\"}", status().isOk());
+
+        Recipe updated = recipeRepository.findById(recipe.getId()).orElseThrow();
+        assertEquals("Renamed soup", updated.getName());
+        assertEquals(3, updated.getServings());
+        assertTrue(updated.getIngredients().stream().anyMatch(line -> line.getIngredient().getName().equals("concurrent-basil")));
+        assertEquals(version + 2, updated.getVersion());
+    }
+
+    @Test
+    void patch_ShouldReturnConflict_WhenConcurrentUpdateChangedSameField() throws Exception {
+        Recipe recipe = createRecipe("Conflicting soup");
+
+        patchWhileAnotherPatchIsSaved(recipe.getId(), "{\"servings\": 6}", status().isConflict());
+
+        Recipe updated = recipeRepository.findById(recipe.getId()).orElseThrow();
+        assertEquals(6, updated.getServings());
+        assertTrue(updated.getIngredients().stream().noneMatch(line -> line.getIngredient().getName().equals("concurrent-basil")));
+    }
+
+    @Test
+    void patch_ShouldReturnPreconditionFailed_WhenConditionalUpdateLosesItsVersion() throws Exception {
+        Recipe recipe = createRecipe("Conditional soup");
+        long version = recipe.getVersion();
+
+        patchWhileAnotherPatchIsSaved(recipe.getId(), "{\"name\": \"Renamed soup\"}", "\"" + version + "\"",
+                status().isPreconditionFailed());
+
+        Recipe updated = recipeRepository.findById(recipe.getId()).orElseThrow();
+        assertEquals("Renamed soup", updated.getName());
+        assertEquals(2, updated.getServings());
+        assertEquals(version + 1, updated.getVersion());
+    }
+
+    private Recipe createRecipe(String name) {
+        recipeManagementService.addRecipe(new RecipeRequestDTO(name, RecipeType.VEGAN, 2,
+                List.of(new IngredientDTO(null, "concurrent-salt", 1.0, "g")), "Boil"));
+        return recipeRepository.findAll().stream()
+                .filter(recipe -> recipe.getName().equals(name))
+                .findFirst().orElseThrow();
+    }
+
+    // Sends a PATCH of servings and ingredients; the other PATCH is sent, from another thread, while the first
+    // one merges its ingredients
+    private void patchWhileAnotherPatchIsSaved(Long id, String otherUpdate, ResultMatcher expectedStatus) throws Exception {
+        patchWhileAnotherPatchIsSaved(id, otherUpdate, null, expectedStatus);
+    }
+
+    private void patchWhileAnotherPatchIsSaved(Long id, String otherUpdate, String ifMatch,
+                                               ResultMatcher expectedStatus) throws Exception {
+        AtomicBoolean otherUpdateSent = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (otherUpdateSent.compareAndSet(false, true)) {
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        mockMvc.perform(patch("/api/recipes/" + id)
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .content(otherUpdate))
+                                .andExpect(status().isOk());
+                    } catch (Exception ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }).join();
+            }
+            return invocation.callRealMethod();
+        }).when(ingredientService).mergeIngredients(any(), any(), any());
+
+        MockHttpServletRequestBuilder request = patch("/api/recipes/" + id);
+        if (ifMatch != null) {
+            request.header("If-Match", ifMatch);
+        }
+        mockMvc.perform(request
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"servings\": 3, \"ingredients\": [{\"name\": \"concurrent-basil\", \"quantity\": 1, \"unit\": \"g\"}]}"))
+                .andExpect(expectedStatus);
+    }
+}
@@ -3,11 +3,24 @@ package com.manage.recipe;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.manage.recipe.controllers.RecipeController;
 import com.manage.recipe.dto.ApiResponse;
+import com.manage.recipe.dto.BulkImportResponse;
+import com.manage.recipe.dto.BulkImportResultDTO;
 import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.PantryMatchDTO;
+import com.manage.recipe.dto.PantryResponse;
 import com.manage.recipe.dto.RecipeRequestDTO;
+import com.manage.recipe.dto.RecipeResponse;
+import com.manage.recipe.dto.RecipeResponseDT0;
+import com.manage.recipe.exception.ResourceNotFoundException;
 import com.manage.recipe.dto.RecipeUpdateRequestDTO;
+import com.manage.recipe.dto.RecipeUpdateResultDTO;
+import com.manage.recipe.exception.PreconditionFailedException;
+import com.manage.recipe.model.IncludeMode;
+import com.manage.recipe.model.RecipeSort;
 import com.manage.recipe.model.RecipeType;
+import com.manage.recipe.services.RecipeImportService;
 import com.manage.recipe.services.RecipeManagementService;
+import com.manage.recipe.services.RecipeStreamService;
 import com.manage.recipe.services.SearchService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,15 +28,24 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import reactor.core.publisher.Flux;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(RecipeController.class)
@@ -38,6 +60,12 @@ class RecipeControllerTest {
     @MockBean
     private SearchService searchService;
 
+    @MockBean
+    private RecipeImportService recipeImportService;
+
+    @MockBean
+    private RecipeStreamService recipeStreamService;
+
     private List<IngredientDTO> ingredients  = new ArrayList<>();
 
     @BeforeEach
@@ -53,6 +81,104 @@ class RecipeControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void getAllRecipes_ShouldReturnPage_WhenCursorGiven() throws Exception {
+        RecipeResponse page = new RecipeResponse(new ArrayList<>(), 120, 60L);
+        Mockito.when(recipeManagementService.getRecipesPage(10L, 50)).thenReturn(page);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/recipes").param("after", "10").param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalRecipes").value(120))
+                .andExpect(jsonPath("$.nextCursor").value(60));
+        Mockito.verify(recipeManagementService, Mockito.never()).getAllRecipes();
+    }
+
+    @Test
+    void exportRecipes_ShouldStreamNdjson() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/recipes/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON));
+        Mockito.verify(recipeManagementService).exportRecipes(any());
+    }
+
+    @Test
+    void filterRecipes_ShouldPassIncludeModeSortDirectionAndLimit() throws Exception {
+        Mockito.when(searchService.filterRecipes(RecipeType.VEGAN, null, List.of("flour", "milk"), IncludeMode.ALL, null, null,
+                RecipeSort.CREATED_AT, Sort.Direction.ASC, 20)).thenReturn(new RecipeResponse(new ArrayList<>(), 0, null));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/recipes/search").param("recipeType", "VEGAN")
+                        .param("includeIngredients", "flour", "milk").param("includeMode", "ALL")
+                        .param("sort", "CREATED_AT").param("direction", "ASC").param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalRecipes").value(0));
+    }
+
+    @Test
+    void findPantryMatches_ShouldPassIngredientsMaxMissingAndDefaultLimit() throws Exception {
+        RecipeResponseDT0 recipe = new RecipeResponseDT0();
+        recipe.setName("Pancakes");
+        Mockito.when(searchService.findPantryMatches(List.of("flour", "milk"), 1, 50)).thenReturn(
+                new PantryResponse(List.of(new PantryMatchDTO(recipe, 2.0 / 3, List.of("eggs"))), 1));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/recipes/pantry")
+                        .param("ingredients", "flour", "milk").param("maxMissing", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalMatches").value(1))
+                .andExpect(jsonPath("$.matches[0].recipe.name").value("Pancakes"))
+                .andExpect(jsonPath("$.matches[0].missingIngredients[0]").value("eggs"));
+    }
+
+    @Test
+    void streamFilteredRecipes_ShouldWriteOneRecipePerLine() throws Exception {
+        RecipeResponseDT0 first = new RecipeResponseDT0();
+        first.setName("Pancakes");
+        RecipeResponseDT0 second = new RecipeResponseDT0();
+        second.setName("Salad");
+        Mockito.when(recipeStreamService.streamFilteredRecipes(RecipeType.VEGAN, null, null, IncludeMode.ANY, null, null))
+                .thenReturn(Flux.just(first, second));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/recipes/search/stream")
+                        .param("recipeType", "VEGAN"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.trim().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"name\":\"Pancakes\""));
+        assertTrue(lines[1].contains("\"name\":\"Salad\""));
+    }
+
+    @Test
+    void getRecipe_ShouldReturnRecipe() throws Exception {
+        RecipeResponseDT0 recipe = new RecipeResponseDT0();
+        recipe.setId(1L);
+        recipe.setName("Tea");
+        recipe.setVersion(2L);
+        Mockito.when(recipeManagementService.getRecipe(1L)).thenReturn(recipe);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/recipes/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(jsonPath("$.name").value("Tea"));
+    }
+
+    @Test
+    void getRecipe_ShouldReturnNotFound_WhenRecipeDoesNotExist() throws Exception {
+        Mockito.when(recipeManagementService.getRecipe(99L))
+                .thenThrow(new ResourceNotFoundException("Recipe with id: 99 does not exist"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/recipes/99"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void addRecipe_ShouldReturnCreated() throws Exception {
         RecipeRequestDTO request = new RecipeRequestDTO("Tea", RecipeType.VEGETARIAN, 1, ingredients,
@@ -73,11 +199,36 @@ class RecipeControllerTest {
                 .andExpect(jsonPath("$.message").value("Recipe added successfully"));
     }
 
+    @Test
+    void importRecipes_ShouldAcceptJsonArrayAndNdjson() throws Exception {
+        List<String> importedNames = new ArrayList<>();
+        Mockito.when(recipeImportService.importRecipes(any())).thenAnswer(invocation -> {
+            Iterator<RecipeRequestDTO> recipeRequests = invocation.getArgument(0);
+            recipeRequests.forEachRemaining(request -> importedNames.add(request.getName()));
+            return new BulkImportResponse(2, 0, List.of(new BulkImportResultDTO(0, true, 1L, "Recipe successfully added"),
+                    new BulkImportResultDTO(1, true, 2L, "Recipe successfully added")));
+        });
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/recipes/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\": \"Tea\"}, {\"name\": \"Coffee\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.results[1].id").value(2));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/recipes/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\": \"Soup\"}\n{\"name\": \"Bread\"}\n"))
+                .andExpect(status().isOk());
+
+        org.junit.jupiter.api.Assertions.assertEquals(List.of("Tea", "Coffee", "Soup", "Bread"), importedNames);
+    }
+
     @Test
     void updatePartialRecipe_ShouldReturnOk() throws Exception {
 
-        Mockito.when(recipeManagementService.updateRecipe(anyLong(), any(RecipeUpdateRequestDTO.class)))
-                .thenReturn(new ApiResponse<>("Recipe updated successfully", "Coffee", true));
+        Mockito.when(recipeManagementService.updateRecipe(anyLong(), any(RecipeUpdateRequestDTO.class), isNull()))
+                .thenReturn(new RecipeUpdateResultDTO(new ApiResponse<>("Recipe updated successfully", "Coffee", true), 1L));
 
         mockMvc.perform(MockMvcRequestBuilders.patch("/api/recipes/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -86,6 +237,41 @@ class RecipeControllerTest {
                 .andExpect(jsonPath("$.message").value("Recipe updated successfully"));
     }
 
+    @Test
+    void updatePartialRecipe_ShouldPassIfMatchVersion_AndReturnNewETag() throws Exception {
+        Mockito.when(recipeManagementService.updateRecipe(eq(1L), any(RecipeUpdateRequestDTO.class), eq(3L)))
+                .thenReturn(new RecipeUpdateResultDTO(new ApiResponse<>("Recipe's given fields updated", "Bread", true), 4L));
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/api/recipes/1")
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Bread\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+    }
+
+    @Test
+    void updatePartialRecipe_ShouldReturnPreconditionFailed_WhenVersionIsStale() throws Exception {
+        Mockito.when(recipeManagementService.updateRecipe(eq(1L), any(RecipeUpdateRequestDTO.class), eq(3L)))
+                .thenThrow(new PreconditionFailedException("Recipe with id: 1 is at version 5, not 3"));
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/api/recipes/1")
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Bread\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void updatePartialRecipe_ShouldReturnPreconditionFailed_WhenIfMatchIsWeak() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.patch("/api/recipes/1")
+                        .header("If-Match", "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Bread\"}"))
+                .andExpect(status().isPreconditionFailed());
+        Mockito.verifyNoInteractions(recipeManagementService);
+    }
+
     @Test
     void deleteRecipe_ShouldReturnOk() throws Exception {
         mockMvc.perform(MockMvcRequestBuilders.delete("/api/recipes/1"))
@@ -0,0 +1,112 @@
+package com.manage.recipe;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.manage.recipe.dto.BulkImportResponse;
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.RecipeRequestDTO;
+import com.manage.recipe.model.RecipeType;
+import com.manage.recipe.repository.IngredientRepository;
+import com.manage.recipe.repository.RecipeRepository;
+import com.manage.recipe.services.RecipeImportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "recipe.import.chunk-size=2")
+class RecipeImportServiceTest {
+
+    @Autowired
+    private RecipeImportService recipeImportService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private RecipeRequestDTO recipe(String name, Integer servings, String... ingredientNames) {
+        List<IngredientDTO> ingredients = java.util.Arrays.stream(ingredientNames)
+                .map(ingredientName -> new IngredientDTO(null, ingredientName, 1.0, "g"))
+                .toList();
+        return new RecipeRequestDTO(name, RecipeType.VEGAN, servings, ingredients, "Mix everything");
+    }
+
+    @Test
+    void importRecipes_ShouldPersistValidRecipesInChunks_AndReportInvalidOnes() {
+        long recipesBefore = recipeRepository.count();
+        long ingredientsBefore = ingredientRepository.count();
+
+        List<RecipeRequestDTO> requests = List.of(
+                recipe("Bulk soup", 2, "bulk-water", "bulk-salt"),
+                recipe("Bulk bread", 0, "bulk-flour"),
+                recipe("Bulk salad", 1, "Bulk-Salt", "bulk-leaf"),
+                recipe("Bulk tea", 1, "bulk-water", "bulk-leaf"),
+                recipe("Bulk stew", 3, "bulk-salt"));
+
+        BulkImportResponse response = recipeImportService.importRecipes(requests.iterator());
+
+        assertEquals(4, response.getImported());
+        assertEquals(1, response.getFailed());
+        assertFalse(response.getResults().get(1).isSuccess());
+        assertEquals("servings: Servings must be at least 1.", response.getResults().get(1).getMessage());
+        assertNotNull(response.getResults().get(4).getId());
+        assertEquals(recipesBefore + 4, recipeRepository.count());
+        // water, salt and leaf are created once for the whole batch, flour only belonged to the invalid recipe
+        assertEquals(ingredientsBefore + 3, ingredientRepository.count());
+    }
+
+    @Test
+    void importRecipes_ShouldReportChunkAsFailed_WhenItsIngredientsCannotBeCreated() {
+        long recipesBefore = recipeRepository.count();
+
+        List<RecipeRequestDTO> requests = List.of(
+                recipe("Resolved soup", 2, "resolved-water"),
+                recipe("Resolved tea", 1, "resolved-leaf"),
+                recipe("Unresolved stew", 1, "x".repeat(300)), // longer than the name column
+                recipe("Unresolved bread", 1, "resolved-flour"),
+                recipe("Resolved salad", 1, "resolved-leaf"));
+
+        BulkImportResponse response = recipeImportService.importRecipes(requests.iterator());
+
+        assertEquals(3, response.getImported());
+        assertEquals(2, response.getFailed());
+        assertEquals(RecipeImportService.SAVE_FAILED_MESSAGE, response.getResults().get(2).getMessage());
+        assertEquals(RecipeImportService.SAVE_FAILED_MESSAGE, response.getResults().get(3).getMessage());
+        assertTrue(response.getResults().get(4).isSuccess());
+        assertEquals(recipesBefore + 3, recipeRepository.count());
+    }
+
+    @Test
+    void importRecipes_ShouldKeepEarlierChunksAndReportMalformedRecipe_WhenInputBreaksOff() throws Exception {
+        long recipesBefore = recipeRepository.count();
+        String ndjson = """
+                {"name": "Broken soup", "recipeType": "VEGAN", "servings": 2, "ingredients": [{"name": "broken-water", "quantity": 1, "unit": "l"}], "instructions": "Boil"}
+                {"name": "Broken tea", "recipeType": "VEGAN", "servings": 1, "ingredients": [{"name": "broken-leaf", "quantity": 1, "unit": "g"}], "instructions": "Steep"}
+                {"name": "Broken bread", "recipeType": "VEGAN", "servings": 1, "ingredients": [{"name": "broken-flour", "quantity": 1, "unit": "g"}], "instructions": "Bake"}
+                {"name": "Broken stew", "servings": two}
+                {"name": "Unread stew", "recipeType": "VEGAN", "servings": 1, "ingredients": [{"name": "broken-salt", "quantity": 1, "unit": "g"}], "instructions": "Stew"}
+                """;
+
+        BulkImportResponse response;
+        try (MappingIterator<RecipeRequestDTO> recipeRequests =
+                     objectMapper.readerFor(RecipeRequestDTO.class).readValues(ndjson)) {
+            response = recipeImportService.importRecipes(recipeRequests);
+        }
+
+        assertEquals(3, response.getImported());
+        assertEquals(1, response.getFailed());
+        assertEquals(4, response.getResults().size());
+        assertNotNull(response.getResults().get(2).getId());
+        assertFalse(response.getResults().get(3).isSuccess());
+        assertEquals(RecipeImportService.MALFORMED_MESSAGE, response.getResults().get(3).getMessage());
+        assertEquals(recipesBefore + 3, recipeRepository.count());
+    }
+}
@@ -0,0 +1,144 @@
+package com.manage.recipe;
+
+import com.manage.recipe.index.RecipeIndex;
+import com.manage.recipe.model.IncludeMode;
+import com.manage.recipe.model.Ingredient;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeSort;
+import com.manage.recipe.model.RecipeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecipeIndexTest {
+
+    private RecipeIndex recipeIndex;
+
+    @BeforeEach
+    void setUp() {
+        recipeIndex = new RecipeIndex();
+        recipeIndex.index(recipe(1L, RecipeType.VEGETARIAN, 2, "flour", "milk"));
+        recipeIndex.index(recipe(2L, RecipeType.VEGAN, 2, "flour", "water"));
+        recipeIndex.index(recipe(3L, RecipeType.NON_VEGETARIAN, 4, "chicken", "onion"));
+    }
+
+    private Recipe recipe(Long id, RecipeType recipeType, int servings, String... ingredientNames) {
+        Recipe recipe = new Recipe(id, "Recipe " + id, recipeType, servings, null, "Mix",
+                LocalDateTime.now(), LocalDateTime.now(), null);
+        for (String name : ingredientNames) {
+            recipe.addIngredient(new Ingredient(name), 1.0, "g");
+        }
+        return recipe;
+    }
+
+    @Test
+    void filter_ShouldReturnAllRecipes_WhenNoFilters() {
+        assertEquals(List.of(1L, 2L, 3L), recipeIndex.filter(null, null, null, null));
+    }
+
+    @Test
+    void filter_ShouldCombineTypeServingsIncludeAndExclude() {
+        assertEquals(List.of(1L, 2L), recipeIndex.filter(null, 2, List.of("FLOUR"), null));
+        assertEquals(List.of(2L), recipeIndex.filter(RecipeType.VEGAN, null, List.of("flour", "chicken"), null));
+        assertEquals(List.of(2L, 3L), recipeIndex.filter(null, null, null, List.of("milk")));
+        assertTrue(recipeIndex.filter(null, null, List.of("butter"), null).isEmpty());
+    }
+
+    @Test
+    void filter_ShouldRequireEveryIncludedIngredient_WhenIncludeModeAll() {
+        recipeIndex.index(recipe(4L, RecipeType.VEGAN, 2, "flour", "milk", "sugar"));
+
+        assertEquals(List.of(1L, 4L), recipeIndex.filter(null, null, List.of("milk", "FLOUR", "flour"), IncludeMode.ALL, null));
+        assertEquals(List.of(4L), recipeIndex.filter(null, null, List.of("sugar", "milk", "flour"), IncludeMode.ALL, null));
+        assertEquals(List.of(1L), recipeIndex.filter(null, null, List.of("flour", "milk"), IncludeMode.ALL, List.of("sugar")));
+        assertTrue(recipeIndex.filter(null, null, List.of("flour", "butter"), IncludeMode.ALL, null).isEmpty());
+    }
+
+    @Test
+    void pantry_ShouldRankByCoverage_WithinMaxMissing() {
+        recipeIndex.index(recipe(4L, RecipeType.VEGAN, 2, "flour", "milk", "sugar"));
+        recipeIndex.index(recipe(5L, RecipeType.VEGAN, 2, "milk"));
+        List<String> pantry = List.of("flour", "MILK", "eggs", "milk");
+
+        assertEquals(List.of(1L, 5L), recipeIndex.pantry(pantry, 0, null));
+        assertEquals(List.of(1L, 5L, 4L, 2L), recipeIndex.pantry(pantry, 1, null));
+        assertEquals(List.of(1L, 5L, 4L), recipeIndex.pantry(pantry, 2, 3));
+        assertTrue(recipeIndex.pantry(List.of("butter"), 2, null).isEmpty());
+
+        recipeIndex.remove(1L);
+        assertEquals(List.of(5L, 4L, 2L), recipeIndex.pantry(pantry, 1, null));
+    }
+
+    @Test
+    void index_ShouldReplacePreviousEntry_WhenRecipeUpdated() {
+        recipeIndex.index(recipe(1L, RecipeType.VEGAN, 6, "rice"));
+
+        assertEquals(List.of(2L), recipeIndex.filter(null, null, List.of("milk", "flour"), null));
+        assertEquals(List.of(1L), recipeIndex.filter(RecipeType.VEGAN, 6, List.of("rice"), null));
+        assertEquals(3, recipeIndex.size());
+    }
+
+    @Test
+    void remove_ShouldDropRecipeFromAllBitmaps() {
+        recipeIndex.remove(2L);
+
+        assertEquals(List.of(1L, 3L), recipeIndex.filter(null, null, null, null));
+        assertTrue(recipeIndex.filter(RecipeType.VEGAN, null, null, null).isEmpty());
+    }
+
+    @Test
+    void top_ShouldKeepFirstRecipesInSortOrder_WhenLimited() {
+        recipeIndex.index(recipe(4L, RecipeType.VEGAN, 1, "flour"));
+        Recipe renamed = recipe(5L, RecipeType.VEGAN, 3, "flour");
+        renamed.setName("apple pie");
+        recipeIndex.index(renamed);
+
+        assertEquals(List.of(5L, 1L), recipeIndex.top(null, null, null, IncludeMode.ANY, null, RecipeSort.NAME, null, 2));
+        assertEquals(List.of(3L, 5L, 1L), recipeIndex.top(null, null, null, IncludeMode.ANY, null, RecipeSort.SERVINGS,
+                Sort.Direction.DESC, 3));
+        assertEquals(List.of(4L, 1L, 2L, 5L), recipeIndex.top(null, null, List.of("flour"), IncludeMode.ANY, null, RecipeSort.SERVINGS,
+                null, null));
+        assertEquals(List.of(1L, 2L), recipeIndex.top(null, null, null, IncludeMode.ANY, null, null, null, 2));
+    }
+
+    @Test
+    void top_ShouldRankByIncludedIngredientsFound_WhenBestMatch() {
+        recipeIndex.index(recipe(4L, RecipeType.VEGAN, 2, "flour", "milk", "sugar"));
+
+        assertEquals(List.of(4L, 1L, 2L), recipeIndex.top(null, null, List.of("sugar", "milk", "flour", "Milk"), IncludeMode.ANY, null,
+                RecipeSort.BEST_MATCH, null, 3));
+        assertEquals(List.of(4L, 1L), recipeIndex.top(null, null, List.of("milk", "sugar"), IncludeMode.ANY, null,
+                RecipeSort.BEST_MATCH, null, 5));
+    }
+
+    @Test
+    void top_ShouldSortGivenIds_AndSkipRecipesNoLongerIndexed() {
+        recipeIndex.remove(2L);
+
+        assertEquals(List.of(3L, 1L), recipeIndex.top(List.of(1L, 2L, 3L), null, RecipeSort.SERVINGS,
+                Sort.Direction.DESC, null));
+    }
+
+    @Test
+    void page_ShouldCountEveryMatch_BeforeTheLimit() {
+        RecipeIndex.Page page = recipeIndex.page(null, 2, null, IncludeMode.ANY, null, RecipeSort.NAME, null, 1);
+
+        assertEquals(List.of(1L), page.recipeIds());
+        assertEquals(2, page.totalMatches());
+    }
+
+    @Test
+    void indexAndRemove_ShouldReturnPreviouslyIndexedIngredientNames() {
+        assertEquals(Set.of(), recipeIndex.index(recipe(4L, RecipeType.VEGAN, 2, "Rice")));
+        assertEquals(Set.of("flour", "milk"), recipeIndex.index(recipe(1L, RecipeType.VEGAN, 2, "flour", "Eggs")));
+        assertEquals(Set.of("flour", "eggs"), recipeIndex.remove(1L));
+        assertEquals(Set.of(), recipeIndex.remove(1L));
+    }
+}
@@ -0,0 +1,86 @@
+package com.manage.recipe;
+
+import com.manage.recipe.index.FullTextIndex;
+import com.manage.recipe.index.IngredientNameIndex;
+import com.manage.recipe.index.RecipeIndex;
+import com.manage.recipe.index.RecipeIndexer;
+import com.manage.recipe.model.Ingredient;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeType;
+import com.manage.recipe.repository.RecipeFilterRepository;
+import com.manage.recipe.repository.RecipeRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RecipeIndexerTest {
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    @Mock
+    private RecipeFilterRepository recipeFilterRepository;
+
+    @Spy
+    private RecipeIndex recipeIndex = new RecipeIndex();
+
+    @Spy
+    private FullTextIndex fullTextIndex = new FullTextIndex();
+
+    @Spy
+    private IngredientNameIndex ingredientNameIndex = new IngredientNameIndex();
+
+    @InjectMocks
+    private RecipeIndexer recipeIndexer;
+
+    private Recipe recipe(Long id, String name, String ingredientName) {
+        Recipe recipe = new Recipe(id, name, RecipeType.VEGAN, 2, null, "Mix",
+                LocalDateTime.now(), LocalDateTime.now(), null);
+        recipe.addIngredient(new Ingredient(ingredientName), 1.0, "g");
+        return recipe;
+    }
+
+    @Test
+    void warmUp_ShouldKeepWrites_ThatLandedWhileItsBatchWasLoaded() {
+        when(recipeRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(1L, 2L));
+        when(recipeFilterRepository.findWithIngredientsByIds(List.of(1L, 2L))).thenAnswer(invocation -> {
+            // Recipe 1 is updated and recipe 2 deleted after the batch was read
+            recipeIndexer.index(recipe(1L, "Renamed soup", "pepper"));
+            recipeIndexer.remove(2L);
+            return List.of(recipe(1L, "Soup", "salt"), recipe(2L, "Stew", "salt"));
+        });
+
+        recipeIndexer.warmUp();
+
+        assertEquals(List.of(1L), recipeIndex.filter(null, null, null, null));
+        assertEquals(List.of(1L), recipeIndex.filter(null, null, List.of("pepper"), null));
+        assertEquals(Optional.of(List.of(1L)), fullTextIndex.search("renamed"));
+        assertEquals(Optional.of(List.of()), fullTextIndex.search("stew"));
+    }
+
+    @Test
+    void index_ShouldApplyWrites_AfterTheWarmUp() {
+        when(recipeRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of());
+        when(recipeFilterRepository.findWithIngredientsByIds(List.of())).thenReturn(List.of());
+        recipeIndexer.warmUp();
+
+        recipeIndexer.index(recipe(1L, "Soup", "salt"));
+        recipeIndexer.index(recipe(1L, "Soup", "pepper"));
+
+        assertEquals(List.of(1L), recipeIndex.filter(null, null, List.of("pepper"), null));
+        assertEquals(List.of(), recipeIndex.filter(null, null, List.of("salt"), null));
+    }
+}
@@ -2,27 +2,42 @@ package com.manage.recipe;
 
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.manage.recipe.cache.RecipeCache;
+import com.manage.recipe.cache.SearchResultCache;
 import com.manage.recipe.dto.*;
+import com.manage.recipe.exception.ConcurrentUpdateException;
+import com.manage.recipe.exception.InvalidInputException;
+import com.manage.recipe.exception.PreconditionFailedException;
 import com.manage.recipe.exception.ResourceNotFoundException;
+import com.manage.recipe.index.RecipeIndexer;
+import com.manage.recipe.mapper.RecipeMapper;
 import com.manage.recipe.model.Ingredient;
 import com.manage.recipe.model.Recipe;
 import com.manage.recipe.model.RecipeType;
+import com.manage.recipe.repository.RecipeFilterRepository;
 import com.manage.recipe.repository.RecipeRepository;
 import com.manage.recipe.services.IngredientService;
 import com.manage.recipe.services.RecipeManagementService;
 import com.manage.recipe.dto.RecipeResponseDT0;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,7 +47,10 @@ class RecipeManagementServiceTest {
     private RecipeRepository recipeRepository;
 
     @Mock
-    private ModelMapper modelMapper;
+    private RecipeFilterRepository recipeFilterRepository;
+
+    @Spy
+    private RecipeMapper recipeMapper = new RecipeMapper();
 
     @Mock
     private IngredientService ingredientService;
@@ -40,6 +58,18 @@ class RecipeManagementServiceTest {
     @Mock
     private ObjectMapper objectMapper;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private RecipeIndexer recipeIndexer;
+
+    @Mock
+    private RecipeCache recipeCache;
+
+    @Mock
+    private SearchResultCache searchResultCache;
+
     @InjectMocks
     private RecipeManagementService recipeManagementService;
 
@@ -56,12 +86,8 @@ class RecipeManagementServiceTest {
         existingRecipe.setServings(1);
         existingRecipe.setInstructions("Old instructions");
 
-        Ingredient ingredient1 = new Ingredient("water", 150.0, "gram");
-        Ingredient ingredient2 = new Ingredient("milk", 15.0, "ml");
-        List<Ingredient> ingredients = new ArrayList<>();
-        ingredients.add(ingredient1);
-        ingredients.add(ingredient2);
-        existingRecipe.setIngredients(ingredients);
+        existingRecipe.addIngredient(new Ingredient("water"), 150.0, "gram");
+        existingRecipe.addIngredient(new Ingredient("milk"), 15.0, "ml");
 
         // Initialize response DTO
         recipeResponseDTO = new RecipeResponseDT0();
@@ -72,15 +98,10 @@ class RecipeManagementServiceTest {
     @Test
     void getAllRecipes_ShouldReturnRecipeResponse() {
         // Arrange
-        Recipe recipe = new Recipe();
+        RecipeResponseDT0 recipe = new RecipeResponseDT0();
         recipe.setName("Tea");
-        List<Recipe> recipes = List.of(recipe);
 
-        RecipeResponseDT0 recipeResponseDTO = new RecipeResponseDT0();
-        recipeResponseDTO.setName("Tea");
-
-        when(recipeRepository.findAll()).thenReturn(recipes);
-        when(modelMapper.map(recipe, RecipeResponseDT0.class)).thenReturn(recipeResponseDTO);
+        when(recipeFilterRepository.findAllResponses()).thenReturn(List.of(recipe));
 
         // Act
         RecipeResponse response = recipeManagementService.getAllRecipes();
@@ -90,6 +111,79 @@ class RecipeManagementServiceTest {
         assertEquals("Tea", response.getRecipes().get(0).getName());
     }
 
+    // Test if a single recipe is loaded through the cache
+    @Test
+    void getRecipe_ShouldLoadThroughCache() {
+        when(recipeCache.get(eq(1L), any())).thenAnswer(invocation ->
+                invocation.<java.util.function.Function<Long, RecipeResponseDT0>>getArgument(1).apply(1L));
+        when(recipeRepository.findById(1L)).thenReturn(Optional.of(existingRecipe));
+
+        assertEquals("Old Tea", recipeManagementService.getRecipe(1L).getName());
+        verify(recipeCache, times(1)).get(eq(1L), any());
+    }
+
+    // Test if a keyset page returns the cursor of its last row and the total from the count query
+    @Test
+    void getRecipesPage_ShouldReturnPageWithNextCursor() {
+        RecipeResponseDT0 first = new RecipeResponseDT0();
+        first.setId(11L);
+        RecipeResponseDT0 second = new RecipeResponseDT0();
+        second.setId(12L);
+
+        when(recipeRepository.findIdsAfter(10L, Limit.of(2))).thenReturn(List.of(11L, 12L));
+        when(recipeFilterRepository.findResponsesByIds(List.of(11L, 12L))).thenReturn(List.of(first, second));
+        when(recipeRepository.count()).thenReturn(40L);
+
+        RecipeResponse response = recipeManagementService.getRecipesPage(10L, 2);
+
+        assertEquals(2, response.getRecipes().size());
+        assertEquals(40, response.getTotalRecipes());
+        assertEquals(12L, response.getNextCursor());
+    }
+
+    // Test if the last (short) page has no next cursor
+    @Test
+    void getRecipesPage_ShouldNotReturnCursor_OnLastPage() {
+        RecipeResponseDT0 last = new RecipeResponseDT0();
+        last.setId(40L);
+
+        when(recipeRepository.findIdsAfter(0L, Limit.of(5))).thenReturn(List.of(40L));
+        when(recipeFilterRepository.findResponsesByIds(List.of(40L))).thenReturn(List.of(last));
+        when(recipeRepository.count()).thenReturn(1L);
+
+        RecipeResponse response = recipeManagementService.getRecipesPage(null, 5);
+
+        assertEquals(1, response.getRecipes().size());
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    void getRecipesPage_ShouldThrowInvalidInputException_WhenLimitOutOfRange() {
+        assertThrows(InvalidInputException.class, () -> recipeManagementService.getRecipesPage(null, 0));
+        assertThrows(InvalidInputException.class,
+                () -> recipeManagementService.getRecipesPage(null, RecipeManagementService.MAX_PAGE_SIZE + 1));
+    }
+
+    // Test if export writes one JSON line per recipe, read as projections batch by batch
+    @Test
+    void exportRecipes_ShouldWriteNewlineDelimitedJson() throws IOException {
+        RecipeResponseDT0 recipe = new RecipeResponseDT0(7L, "Tea", RecipeType.VEGAN, 1, List.of(), "Boil", 0L);
+
+        when(objectMapper.writerFor(RecipeResponseDT0.class))
+                .thenReturn(new ObjectMapper().writerFor(RecipeResponseDT0.class));
+        when(recipeRepository.findIdsAfter(0L, Limit.of(RecipeManagementService.EXPORT_BATCH_SIZE)))
+                .thenReturn(List.of(7L));
+        when(recipeFilterRepository.findResponsesByIds(List.of(7L))).thenReturn(List.of(recipe));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = recipeManagementService.exportRecipes(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1, exported);
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].contains("\"name\":\"Tea\""));
+    }
+
     //To test recipes are added successfully
     @Test
     void addRecipe_ShouldSaveRecipeSuccessfully() {
@@ -99,14 +193,8 @@ class RecipeManagementServiceTest {
         Recipe recipe = new Recipe();
         recipe.setName("Tea");
 
-        // Creating a mock RecipeResponseDT0
-        RecipeResponseDT0 recipeResponseDTO = new RecipeResponseDT0();
-        recipeResponseDTO.setName("Tea");
-
-        when(modelMapper.map(recipeRequest, Recipe.class)).thenReturn(recipe);
         when(ingredientService.findOrCreateIngredientList(recipeRequest.getIngredients())).thenReturn(Collections.emptyList());
         when(recipeRepository.save(any(Recipe.class))).thenReturn(recipe);
-        when(modelMapper.map(recipe, RecipeResponseDT0.class)).thenReturn(recipeResponseDTO); // Mock the mapping return
 
         // Act
         ApiResponse<String> response = recipeManagementService.addRecipe(recipeRequest);
@@ -114,6 +202,7 @@ class RecipeManagementServiceTest {
         // Assert
         assertTrue(response.isSuccess());
         assertEquals("Recipe successfully added", response.getMessage());
+        verify(recipeIndexer, times(1)).index(recipe);
     }
 
     // Test if update function in service is working correctly
@@ -135,11 +224,6 @@ class RecipeManagementServiceTest {
             return existingRecipe; // Returns the updated existingRecipe
         });
 
-        // Mock the modelMapper behavior for mapping to response DTO
-        RecipeResponseDT0 recipeResponseDTO = new RecipeResponseDT0();
-        recipeResponseDTO.setName("Updated Tea"); // Sets expected name for response DTO
-        when(modelMapper.map(existingRecipe, RecipeResponseDT0.class)).thenReturn(recipeResponseDTO); // Mock the mapping return
-
         // Mock the objectMapper to update the recipe object directly
         when(objectMapper.updateValue(any(Recipe.class), any(RecipeUpdateRequestDTO.class))).thenAnswer(invocation -> {
             Recipe recipe = invocation.getArgument(0);
@@ -152,6 +236,64 @@ class RecipeManagementServiceTest {
 
         assertEquals("Recipe's given fields updated", response.getMessage());
         assertEquals("Updated Tea", existingRecipe.getName()); // Verify that the name was updated
+        verify(recipeCache, times(1)).evict(existingId);
+        verify(searchResultCache, times(1)).invalidateAll();
+    }
+
+    // Test if an update based on an older version is refused
+    @Test
+    void updateRecipe_ShouldThrowPreconditionFailedException_WhenIfMatchVersionIsStale() {
+        existingRecipe.setVersion(5L);
+        when(recipeRepository.findById(1L)).thenReturn(Optional.of(existingRecipe));
+
+        assertThrows(PreconditionFailedException.class,
+                () -> recipeManagementService.updateRecipe(1L, servingsUpdate(4), 3L));
+        verify(recipeRepository, never()).save(any(Recipe.class));
+    }
+
+    // Test if an update is applied again on top of a concurrent update of other fields
+    @Test
+    void updateRecipe_ShouldRetry_WhenConcurrentUpdateChangedOtherFields() throws JsonMappingException {
+        existingRecipe.setVersion(1L);
+        Recipe concurrentlyRenamed = copyOf(existingRecipe);
+        concurrentlyRenamed.setName("Renamed Tea");
+        concurrentlyRenamed.setVersion(2L);
+
+        when(recipeRepository.findById(1L)).thenReturn(Optional.of(existingRecipe), Optional.of(concurrentlyRenamed));
+        when(objectMapper.updateValue(any(Recipe.class), any(RecipeUpdateRequestDTO.class))).thenAnswer(invocation -> {
+            invocation.<Recipe>getArgument(0).setServings(4);
+            return null;
+        });
+        when(recipeRepository.save(any(Recipe.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Recipe.class, 1L))
+                .thenAnswer(invocation -> {
+                    Recipe saved = invocation.getArgument(0);
+                    saved.setVersion(saved.getVersion() + 1);
+                    return saved;
+                });
+
+        RecipeUpdateResultDTO result = recipeManagementService.updateRecipe(1L, servingsUpdate(4), null);
+
+        assertEquals(3L, result.getVersion());
+        assertEquals("Renamed Tea", concurrentlyRenamed.getName());
+        assertEquals(4, concurrentlyRenamed.getServings());
+        verify(recipeRepository, times(2)).save(any(Recipe.class));
+    }
+
+    // Test if an update is refused when a concurrent update changed the same field
+    @Test
+    void updateRecipe_ShouldThrowConcurrentUpdateException_WhenConcurrentUpdateChangedSameField() throws JsonMappingException {
+        Recipe concurrentlyResized = copyOf(existingRecipe);
+        concurrentlyResized.setServings(8);
+
+        when(recipeRepository.findById(1L)).thenReturn(Optional.of(existingRecipe), Optional.of(concurrentlyResized));
+        when(recipeRepository.save(any(Recipe.class))).thenThrow(new ObjectOptimisticLockingFailureException(Recipe.class, 1L));
+
+        ConcurrentUpdateException exception = assertThrows(ConcurrentUpdateException.class,
+                () -> recipeManagementService.updateRecipe(1L, servingsUpdate(4), null));
+
+        assertTrue(exception.getMessage().contains("servings"));
+        verify(recipeRepository, times(1)).save(any(Recipe.class));
     }
 
     // To test if correct error thrown if ID is not present in the database
@@ -193,5 +335,25 @@ class RecipeManagementServiceTest {
         recipeManagementService.deleteRecipe(existingId);
 
         verify(recipeRepository, times(1)).deleteById(existingId);
+        verify(recipeIndexer, times(1)).remove(existingId);
+        verify(recipeCache, times(1)).evict(existingId);
+    }
+
+    private static RecipeUpdateRequestDTO servingsUpdate(int servings) {
+        RecipeUpdateRequestDTO updateRequestDTO = new RecipeUpdateRequestDTO();
+        updateRequestDTO.setServings(Optional.of(servings));
+        return updateRequestDTO;
+    }
+
+    private static Recipe copyOf(Recipe recipe) {
+        Recipe copy = new Recipe();
+        copy.setId(recipe.getId());
+        copy.setName(recipe.getName());
+        copy.setRecipeType(recipe.getRecipeType());
+        copy.setServings(recipe.getServings());
+        copy.setIngredients(new ArrayList<>(recipe.getIngredients()));
+        copy.setInstructions(recipe.getInstructions());
+        copy.setVersion(recipe.getVersion());
+        return copy;
     }
 }
@@ -0,0 +1,75 @@
+package com.manage.recipe;
+
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.RecipeRequestDTO;
+import com.manage.recipe.dto.RecipeResponseDT0;
+import com.manage.recipe.mapper.RecipeMapper;
+import com.manage.recipe.model.Ingredient;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeIngredient;
+import com.manage.recipe.model.RecipeType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeMapperTest {
+
+    private final RecipeMapper recipeMapper = new RecipeMapper();
+
+    @Test
+    void toResponse_ShouldCopyEveryFieldAndIngredient() {
+        Recipe recipe = new Recipe(1L, "Pancakes", RecipeType.VEGETARIAN, 2, null, "Mix and cook",
+                LocalDateTime.now(), LocalDateTime.now(), null);
+        recipe.addIngredient(new Ingredient(5L, "flour"), 200.0, "gram");
+
+        RecipeResponseDT0 response = recipeMapper.toResponse(recipe);
+
+        assertEquals(1L, response.getId());
+        assertEquals("Pancakes", response.getName());
+        assertEquals(RecipeType.VEGETARIAN, response.getRecipeType());
+        assertEquals(2, response.getServings());
+        assertEquals("Mix and cook", response.getInstructions());
+        assertEquals(1, response.getIngredients().size());
+        IngredientDTO ingredientDTO = response.getIngredients().get(0);
+        assertEquals(5L, ingredientDTO.getId());
+        assertEquals("flour", ingredientDTO.getName());
+        assertEquals(200.0, ingredientDTO.getQuantity());
+        assertEquals("gram", ingredientDTO.getUnit());
+    }
+
+    @Test
+    void toResponse_ShouldKeepNullIngredients() {
+        Recipe recipe = new Recipe();
+        recipe.setName("Tea");
+
+        RecipeResponseDT0 response = recipeMapper.toResponse(recipe);
+
+        assertEquals("Tea", response.getName());
+        assertNull(response.getIngredients());
+        assertNull(recipeMapper.toResponse(null));
+    }
+
+    @Test
+    void toEntity_ShouldBuildUnsavedRecipeFromRequest() {
+        RecipeRequestDTO request = new RecipeRequestDTO("Tea", RecipeType.VEGAN, 1,
+                List.of(new IngredientDTO(3L, "tea bag", 1.0, "pack")), "Boil water");
+
+        Recipe recipe = recipeMapper.toEntity(request);
+
+        assertNull(recipe.getId());
+        assertEquals("Tea", recipe.getName());
+        assertEquals(RecipeType.VEGAN, recipe.getRecipeType());
+        assertEquals(1, recipe.getServings());
+        assertEquals("Boil water", recipe.getInstructions());
+        RecipeIngredient line = recipe.getIngredients().get(0);
+        assertSame(recipe, line.getRecipe());
+        assertEquals(3L, line.getIngredient().getId());
+        assertEquals("tea bag", line.getIngredient().getName());
+        assertEquals(1.0, line.getQuantity());
+        assertEquals("pack", line.getUnit());
+        assertNull(recipe.getCreatedAt());
+    }
+}
@@ -0,0 +1,68 @@
+package com.manage.recipe;
+
+import com.manage.recipe.dto.ApiResponse;
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.RecipeRequestDTO;
+import com.manage.recipe.dto.RecipeUpdateRequestDTO;
+import com.manage.recipe.model.RecipeType;
+import com.manage.recipe.repository.RecipeRepository;
+import com.manage.recipe.services.RecipeManagementService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Service calls made outside a web request, where no open-session-in-view keeps entities managed
+@SpringBootTest
+class RecipePersistenceTest {
+
+    @Autowired
+    private RecipeManagementService recipeManagementService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Test
+    void addRecipe_ShouldReuseExistingIngredient_OutsideWebRequest() {
+        RecipeRequestDTO first = new RecipeRequestDTO("Persistence soup", RecipeType.VEGAN, 2,
+                List.of(new IngredientDTO(null, "persistence-salt", 1.0, "g")), "Boil");
+        RecipeRequestDTO second = new RecipeRequestDTO("Persistence stew", RecipeType.VEGAN, 2,
+                List.of(new IngredientDTO(null, "Persistence-Salt", 2.0, "g")), "Simmer");
+
+        recipeManagementService.addRecipe(first);
+        ApiResponse<String> response = recipeManagementService.addRecipe(second);
+
+        assertTrue(response.isSuccess());
+    }
+
+    @Test
+    void updateRecipe_ShouldOnlyChangeItsOwnQuantity_WhenIngredientIsShared() throws Exception {
+        Long soupId = addRecipe("Shared soup", 1.0);
+        Long stewId = addRecipe("Shared stew", 2.0);
+
+        RecipeUpdateRequestDTO update = new RecipeUpdateRequestDTO();
+        update.setIngredients(Optional.of(List.of(new IngredientDTO(null, "shared-salt", 5.0, "kg"))));
+        recipeManagementService.updateRecipe(soupId, update);
+
+        IngredientDTO soupSalt = recipeManagementService.getRecipe(soupId).getIngredients().get(0);
+        IngredientDTO stewSalt = recipeManagementService.getRecipe(stewId).getIngredients().get(0);
+        assertEquals(5.0, soupSalt.getQuantity());
+        assertEquals("kg", soupSalt.getUnit());
+        assertEquals(2.0, stewSalt.getQuantity());
+        assertEquals("g", stewSalt.getUnit());
+        assertEquals(soupSalt.getId(), stewSalt.getId()); // still one dictionary entry
+    }
+
+    private Long addRecipe(String name, double saltQuantity) {
+        recipeManagementService.addRecipe(new RecipeRequestDTO(name, RecipeType.VEGAN, 2,
+                List.of(new IngredientDTO(null, "shared-salt", saltQuantity, "g")), "Boil"));
+        return recipeRepository.findAll().stream()
+                .filter(recipe -> recipe.getName().equals(name))
+                .findFirst().orElseThrow().getId();
+    }
+}
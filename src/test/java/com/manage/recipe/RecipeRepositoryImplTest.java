@@ -0,0 +1,205 @@
+package com.manage.recipe;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.manage.recipe.dto.IngredientDTO;
+import com.manage.recipe.dto.RecipeResponseDT0;
+import com.manage.recipe.mapper.RecipeMapper;
+import com.manage.recipe.model.IncludeMode;
+import com.manage.recipe.model.Ingredient;
+import com.manage.recipe.model.Recipe;
+import com.manage.recipe.model.RecipeSort;
+import com.manage.recipe.model.RecipeType;
+import com.manage.recipe.repository.RecipeFilterRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class RecipeRepositoryImplTest {
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private RecipeFilterRepository recipeFilterRepository;
+
+    private Statistics statistics;
+
+    private Long saltId;
+
+    private int seededRecipes;
+
+    @BeforeEach
+    void setUp() {
+        statistics = testEntityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // Persists `count` more recipes that each share "salt" and have one ingredient of their own
+    private void seedRecipes(int count) {
+        Ingredient salt = saltId != null ? testEntityManager.find(Ingredient.class, saltId)
+                : testEntityManager.persist(new Ingredient("salt"));
+        saltId = salt.getId();
+        for (int i = seededRecipes; i < seededRecipes + count; i++) {
+            Ingredient own = testEntityManager.persist(new Ingredient("spice" + i));
+            Recipe recipe = new Recipe(null, "Recipe " + i, RecipeType.VEGAN, 2, null,
+                    "Mix and cook", LocalDateTime.now(), LocalDateTime.now(), null);
+            recipe.addIngredient(salt, 1.0, "g");
+            recipe.addIngredient(own, 2.0, "g");
+            testEntityManager.persist(recipe);
+        }
+        seededRecipes += count;
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    private long countStatementsForSearch(List<String> includeIngredients) {
+        statistics.clear();
+        List<Recipe> recipes = recipeFilterRepository.findByDynamicFilters(RecipeType.VEGAN, null,
+                includeIngredients, null, null);
+        recipes.forEach(recipe -> recipe.getIngredients().size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void findByDynamicFilters_ShouldUseConstantStatementCount_WhenResultSizeGrows() {
+        seedRecipes(3);
+        long smallResultStatements = countStatementsForSearch(List.of("salt"));
+
+        seedRecipes(30);
+        long largeResultStatements = countStatementsForSearch(List.of("salt"));
+
+        assertEquals(2, smallResultStatements);
+        assertEquals(smallResultStatements, largeResultStatements);
+    }
+
+    @Test
+    void findByDynamicFilters_ShouldReturnEachRecipeOnceWithAllIngredients() {
+        seedRecipes(5);
+
+        List<Recipe> recipes = recipeFilterRepository.findByDynamicFilters(null, 2,
+                List.of("SALT", "spice1"), List.of("spice2"), null);
+
+        assertEquals(4, recipes.size());
+        recipes.forEach(recipe -> assertEquals(2, recipe.getIngredients().size()));
+    }
+
+    // Test if the projections return what mapping the loaded entities returns, without loading any entity
+    @Test
+    void findResponsesByIds_ShouldMatchMappedEntities_WithoutLoadingEntities() throws JsonProcessingException {
+        seedRecipes(5);
+        List<Long> ids = recipeFilterRepository.findIdsByDynamicFilters(null, null, null, null, null);
+        ObjectMapper objectMapper = new ObjectMapper();
+        String expected = objectMapper.writeValueAsString(
+                new RecipeMapper().toResponses(recipeFilterRepository.findWithIngredientsByIds(ids)));
+        testEntityManager.clear();
+
+        statistics.clear();
+        List<RecipeResponseDT0> responses = recipeFilterRepository.findResponsesByIds(ids);
+
+        assertEquals(expected, objectMapper.writeValueAsString(responses));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findAllResponses_ShouldReturnEveryRecipeWithItsLinesInOrder() {
+        seedRecipes(3);
+
+        List<RecipeResponseDT0> responses = recipeFilterRepository.findAllResponses();
+
+        assertEquals(List.of("Recipe 0", "Recipe 1", "Recipe 2"),
+                responses.stream().map(RecipeResponseDT0::getName).toList());
+        assertEquals(List.of("salt", "spice1"),
+                responses.get(1).getIngredients().stream().map(IngredientDTO::getName).toList());
+    }
+
+    private List<String> namesOf(List<Long> ids) {
+        return recipeFilterRepository.findResponsesByIds(ids).stream()
+                .sorted(Comparator.comparing(recipe -> ids.indexOf(recipe.getId())))
+                .map(RecipeResponseDT0::getName).toList();
+    }
+
+    @Test
+    void findIdsByDynamicFilters_ShouldSortAndLimitInTheQuery() {
+        seedRecipes(5);
+
+        assertEquals(List.of("Recipe 4", "Recipe 3"), namesOf(recipeFilterRepository.findIdsByDynamicFilters(
+                null, 2, List.of("salt"), IncludeMode.ANY, List.of("spice2"), null, RecipeSort.NAME, Sort.Direction.DESC, 2)));
+        assertEquals(List.of("Recipe 3", "Recipe 0"), namesOf(recipeFilterRepository.findIdsByDynamicFilters(
+                null, null, List.of("SALT", "spice3"), IncludeMode.ANY, null, null, RecipeSort.BEST_MATCH, null, 2)));
+    }
+
+    @Test
+    void findIdsByDynamicFilters_ShouldRequireEveryIncludedIngredient_WhenIncludeModeAll() {
+        seedRecipes(5);
+
+        assertEquals(List.of("Recipe 3"), namesOf(recipeFilterRepository.findIdsByDynamicFilters(
+                null, null, List.of("SALT", "spice3", "salt"), IncludeMode.ALL, null, null, null, null, null)));
+        assertEquals(List.of(), namesOf(recipeFilterRepository.findIdsByDynamicFilters(
+                null, null, List.of("spice1", "spice3"), IncludeMode.ALL, null, null, null, null, null)));
+        assertEquals(List.of("Recipe 0", "Recipe 1"), namesOf(recipeFilterRepository.findIdsByDynamicFilters(
+                null, 2, List.of("salt"), IncludeMode.ALL, null, null, RecipeSort.NAME, null, 2)));
+    }
+
+    @Test
+    void findIdsByDynamicFilters_ShouldSearchNameAndInstructions() {
+        seedRecipes(3);
+
+        assertEquals(List.of("Recipe 1"), namesOf(recipeFilterRepository.findIdsByDynamicFilters(
+                null, null, null, null, "RECIPE 1")));
+        assertEquals(3, recipeFilterRepository.findIdsByDynamicFilters(null, null, null, null, "and cook").size());
+    }
+
+    @Test
+    void findIdsByDynamicFiltersAfter_ShouldReturnKeysetPagesInIdOrder() {
+        seedRecipes(5);
+        List<Long> all = recipeFilterRepository.findIdsByDynamicFilters(null, null, List.of("salt"), null, null);
+
+        List<Long> firstPage = recipeFilterRepository.findIdsByDynamicFiltersAfter(
+                null, null, List.of("SALT"), IncludeMode.ANY, List.of("spice1"), null, 0L, 2);
+        List<Long> secondPage = recipeFilterRepository.findIdsByDynamicFiltersAfter(
+                null, null, List.of("SALT"), IncludeMode.ANY, List.of("spice1"), null, firstPage.get(1), 2);
+
+        assertEquals(List.of(all.get(0), all.get(2)), firstPage);
+        assertEquals(List.of(all.get(3), all.get(4)), secondPage);
+        assertEquals(List.of(all.get(4)), recipeFilterRepository.findIdsByDynamicFiltersAfter(
+                null, null, List.of("salt", "spice4"), IncludeMode.ALL, null, null, all.get(2), 2));
+    }
+
+    @Test
+    void countByDynamicFilters_ShouldCountTheMatchesOfTheIdQuery() {
+        seedRecipes(5);
+
+        assertEquals(4, recipeFilterRepository.countByDynamicFilters(
+                null, 2, List.of("SALT", "spice3"), IncludeMode.ANY, List.of("spice2"), null));
+        assertEquals(1, recipeFilterRepository.countByDynamicFilters(
+                null, null, List.of("salt", "spice3"), IncludeMode.ALL, null, "cook"));
+        assertEquals(0, recipeFilterRepository.countByDynamicFilters(
+                RecipeType.VEGETARIAN, null, null, null, null, null));
+    }
+
+    @Test
+    void findIdsByPantry_ShouldRankByCoverage_WithinMaxMissing() {
+        seedRecipes(5);
+
+        assertEquals(List.of("Recipe 2"), namesOf(recipeFilterRepository.findIdsByPantry(
+                List.of("SALT", "spice2", "pepper"), 0, null)));
+        assertEquals(List.of("Recipe 2", "Recipe 0", "Recipe 1"), namesOf(recipeFilterRepository.findIdsByPantry(
+                List.of("SALT", "spice2", "pepper"), 1, 3)));
+        assertEquals(List.of("Recipe 3"), namesOf(recipeFilterRepository.findIdsByPantry(
+                List.of("spice3"), 1, null)));
+    }
+}
@@ -0,0 +1,101 @@
+package com.manage.recipe;
+
+import com.manage.recipe.dto.RecipeResponseDT0;
+import com.manage.recipe.model.IncludeMode;
+import com.manage.recipe.model.RecipeType;
+import com.manage.recipe.repository.RecipeFilterRepository;
+import com.manage.recipe.repository.RecipeRepository;
+import com.manage.recipe.services.RecipeStreamService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecipeStreamServiceTest {
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    @Mock
+    private RecipeFilterRepository recipeFilterRepository;
+
+    @InjectMocks
+    private RecipeStreamService recipeStreamService;
+
+    // Test if all batches of the keyset scan are streamed in id order
+    @Test
+    void streamRecipes_ShouldStreamEveryBatch() {
+        List<Long> firstBatch = ids(1, RecipeStreamService.STREAM_BATCH_SIZE);
+        when(recipeRepository.findIdsAfter(0L, Limit.of(RecipeStreamService.STREAM_BATCH_SIZE))).thenReturn(firstBatch);
+        when(recipeRepository.findIdsAfter((long) RecipeStreamService.STREAM_BATCH_SIZE,
+                Limit.of(RecipeStreamService.STREAM_BATCH_SIZE))).thenReturn(List.of(101L));
+        when(recipeFilterRepository.findResponsesByIds(anyList())).thenAnswer(invocation -> recipes(invocation.getArgument(0)));
+
+        StepVerifier.create(recipeStreamService.streamRecipes().map(RecipeResponseDT0::getName))
+                .expectNext("Recipe 1")
+                .expectNextCount(RecipeStreamService.STREAM_BATCH_SIZE - 1)
+                .expectNext("Recipe 101")
+                .verifyComplete();
+    }
+
+    // Test if a cancelled stream does not load the next batch
+    @Test
+    void streamRecipes_ShouldNotLoadNextBatch_WhenCancelled() {
+        when(recipeRepository.findIdsAfter(any(), any())).thenReturn(ids(1, RecipeStreamService.STREAM_BATCH_SIZE));
+        when(recipeFilterRepository.findResponsesByIds(anyList())).thenAnswer(invocation -> recipes(invocation.getArgument(0)));
+
+        StepVerifier.create(recipeStreamService.streamRecipes(), 0)
+                .thenRequest(2)
+                .expectNextCount(2)
+                .thenCancel()
+                .verify();
+
+        verify(recipeFilterRepository, times(1)).findResponsesByIds(anyList());
+    }
+
+    // Test if the filtered stream pages the matching ids with the keyset cursor and loads each page
+    @Test
+    void streamFilteredRecipes_ShouldPageMatchingIdsAfterCursor() {
+        List<Long> firstPage = ids(1, RecipeStreamService.STREAM_BATCH_SIZE);
+        when(recipeFilterRepository.findIdsByDynamicFiltersAfter(RecipeType.VEGAN, null, List.of("flour"), IncludeMode.ANY,
+                null, "mix", 0L, RecipeStreamService.STREAM_BATCH_SIZE)).thenReturn(firstPage);
+        when(recipeFilterRepository.findIdsByDynamicFiltersAfter(RecipeType.VEGAN, null, List.of("flour"), IncludeMode.ANY,
+                null, "mix", RecipeStreamService.STREAM_BATCH_SIZE, RecipeStreamService.STREAM_BATCH_SIZE))
+                .thenReturn(List.of(150L));
+        when(recipeFilterRepository.findResponsesByIds(anyList())).thenAnswer(invocation -> recipes(invocation.getArgument(0)));
+
+        StepVerifier.create(recipeStreamService.streamFilteredRecipes(RecipeType.VEGAN, null, List.of("flour"), null, null, "mix")
+                        .map(RecipeResponseDT0::getName))
+                .expectNext("Recipe 1")
+                .expectNextCount(RecipeStreamService.STREAM_BATCH_SIZE - 1)
+                .expectNext("Recipe 150")
+                .verifyComplete();
+
+        verify(recipeFilterRepository, times(2)).findResponsesByIds(anyList());
+    }
+
+    private static List<Long> ids(long from, long to) {
+        return LongStream.rangeClosed(from, to).boxed().collect(Collectors.toList());
+    }
+
+    private static List<RecipeResponseDT0> recipes(List<Long> ids) {
+        return ids.stream().map(id -> {
+            RecipeResponseDT0 recipe = new RecipeResponseDT0();
+            recipe.setId(id);
+            recipe.setName("Recipe " + id);
+            return recipe;
+        }).collect(Collectors.toList());
+    }
+}
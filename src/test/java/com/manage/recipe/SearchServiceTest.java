@@ -1,25 +1,41 @@
 package com.manage.recipe;
 
+import com.manage.recipe.cache.RecipeCache;
+import com.manage.recipe.cache.SearchResultCache;
+import com.manage.recipe.dto.PantryMatchDTO;
+import com.manage.recipe.dto.PantryResponse;
 import com.manage.recipe.dto.RecipeResponse;
-import com.manage.recipe.dto.RecipeResponseDT0;
+import com.manage.recipe.exception.InvalidInputException;
+import com.manage.recipe.index.FullTextIndex;
+import com.manage.recipe.index.RecipeIndex;
+import com.manage.recipe.mapper.RecipeMapper;
+import com.manage.recipe.model.IncludeMode;
 import com.manage.recipe.model.Ingredient;
+import com.manage.recipe.model.RecipeSort;
 import com.manage.recipe.model.RecipeType;
 import com.manage.recipe.model.Recipe;
 import com.manage.recipe.repository.RecipeFilterRepository;
 import com.manage.recipe.services.SearchService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Sort;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,29 +44,34 @@ class SearchServiceTest {
     @Mock
     private RecipeFilterRepository recipeFilterRepository;
 
+    private final RecipeMapper recipeMapper = new RecipeMapper();
+
+    @Mock
+    private RecipeIndex recipeIndex;
+
     @Mock
-    private ModelMapper modelMapper;
+    private FullTextIndex fullTextIndex;
+
+    @Spy
+    private SearchResultCache searchResultCache = new SearchResultCache(100);
+
+    @Spy
+    private RecipeCache recipeCache = new RecipeCache(100, Duration.ofMinutes(1));
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     private SearchService searchService;
 
     private Recipe sampleRecipe;
 
-    private RecipeResponseDT0 sampleRecipeResponseDTO;
-
     @BeforeEach
     void setUp() {
-        Ingredient ingredient1 = new Ingredient("flour", 15.0, "gram");
-        Ingredient ingredient2 = new Ingredient("milk", 15.0, "ml");
-        List<Ingredient> ingredients = new ArrayList<>();
-        ingredients.add(ingredient1);
-        ingredients.add(ingredient2);
-        sampleRecipe = new Recipe(1L, "Pancakes", RecipeType.VEGETARIAN, 2, ingredients , "Mix and cook ingredients",
-                LocalDateTime.now(), LocalDateTime.now());
-
-        // A sample RecipeResponseDTO
-        sampleRecipeResponseDTO = new RecipeResponseDT0();
-        sampleRecipeResponseDTO.setName("Pancakes");
+        sampleRecipe = new Recipe(1L, "Pancakes", RecipeType.VEGETARIAN, 2, null, "Mix and cook ingredients",
+                LocalDateTime.now(), LocalDateTime.now(), null);
+        sampleRecipe.addIngredient(new Ingredient("flour"), 15.0, "gram");
+        sampleRecipe.addIngredient(new Ingredient("milk"), 15.0, "ml");
     }
 
     @Test
@@ -58,19 +79,16 @@ class SearchServiceTest {
         List<String> includeIngredients = List.of("sugar", "milk");
 
         // Mock repository response for include ingredients
-        when(recipeFilterRepository.findByDynamicFilters(
-                any(), any(), eq(includeIngredients), any(), any()
-        )).thenReturn(List.of(sampleRecipe));
-
-        // Mock ModelMapper behavior for converting Recipe to RecipeResponseDTO
-        when(modelMapper.map(any(Recipe.class), eq(RecipeResponseDT0.class))).thenReturn(sampleRecipeResponseDTO);
-
+        when(recipeFilterRepository.findIdsByDynamicFilters(
+                any(), any(), eq(includeIngredients), any(), any(), any()
+        , any(), any(), any())).thenReturn(List.of(1L));
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
 
         RecipeResponse response = searchService.filterRecipes(null, null, includeIngredients, null, null);
 
         assertEquals(1, response.getRecipes().size());
         assertEquals("Pancakes", response.getRecipes().get(0).getName());
-        verify(recipeFilterRepository, times(1)).findByDynamicFilters(any(), any(), eq(includeIngredients), any(), any());
+        verify(recipeFilterRepository, times(1)).findIdsByDynamicFilters(any(), any(), eq(includeIngredients), any(), any(), any(), any(), any(), any());
     }
 
     @Test
@@ -78,37 +96,32 @@ class SearchServiceTest {
         List<String> excludeIngredients = List.of("onion");
 
         // Mock repository response for exclude ingredients
-        when(recipeFilterRepository.findByDynamicFilters(
-                any(), any(), any(), eq(excludeIngredients), any()
-        )).thenReturn(List.of(sampleRecipe));
-
-        // Mock ModelMapper behavior for converting Recipe to RecipeResponseDTO
-        when(modelMapper.map(any(Recipe.class), eq(RecipeResponseDT0.class))).thenReturn(sampleRecipeResponseDTO);
-
+        when(recipeFilterRepository.findIdsByDynamicFilters(
+                any(), any(), any(), any(), eq(excludeIngredients), any()
+        , any(), any(), any())).thenReturn(List.of(1L));
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
 
         RecipeResponse response = searchService.filterRecipes(null, null, null, excludeIngredients, null);
 
         assertEquals(1, response.getRecipes().size());
         assertEquals("Pancakes", response.getRecipes().get(0).getName());
-        verify(recipeFilterRepository, times(1)).findByDynamicFilters(any(), any(), any(), eq(excludeIngredients), any());
+        verify(recipeFilterRepository, times(1)).findIdsByDynamicFilters(any(), any(), any(), any(), eq(excludeIngredients), any(), any(), any(), any());
     }
 
     @Test
     void testFilterRecipesByInstructions() {
         String searchInstructions = "cook";
 
-        when(recipeFilterRepository.findByDynamicFilters(
-                any(), any(), any(), any(), eq(searchInstructions)
-        )).thenReturn(List.of(sampleRecipe));
-
-        when(modelMapper.map(any(Recipe.class), eq(RecipeResponseDT0.class))).thenReturn(sampleRecipeResponseDTO);
-
+        when(recipeFilterRepository.findIdsByDynamicFilters(
+                any(), any(), any(), any(), any(), eq(searchInstructions)
+        , any(), any(), any())).thenReturn(List.of(1L));
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
 
         RecipeResponse response = searchService.filterRecipes(null, null, null, null, searchInstructions);
 
         assertEquals(1, response.getRecipes().size());
         assertEquals("Pancakes", response.getRecipes().get(0).getName());
-        verify(recipeFilterRepository, times(1)).findByDynamicFilters(any(), any(), any(), any(), eq(searchInstructions));
+        verify(recipeFilterRepository, times(1)).findIdsByDynamicFilters(any(), any(), any(), any(), any(), eq(searchInstructions), any(), any(), any());
     }
 
     @Test
@@ -119,35 +132,219 @@ class SearchServiceTest {
         String searchInstructions = "mix";
 
         // Mock repository response for multiple conditions
-        when(recipeFilterRepository.findByDynamicFilters(
-                eq(recipeType), eq(servings), eq(includeIngredients), any(), eq(searchInstructions)
-        )).thenReturn(List.of(sampleRecipe));
-
-        // Mock ModelMapper behavior for converting Recipe to RecipeResponseDTO
-        when(modelMapper.map(any(Recipe.class), eq(RecipeResponseDT0.class))).thenReturn(sampleRecipeResponseDTO);
-
+        when(recipeFilterRepository.findIdsByDynamicFilters(
+                eq(recipeType), eq(servings), eq(includeIngredients), any(), any(), eq(searchInstructions)
+        , any(), any(), any())).thenReturn(List.of(1L));
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
 
         RecipeResponse response = searchService.filterRecipes(recipeType, servings, includeIngredients, null, searchInstructions);
 
         assertEquals(1, response.getRecipes().size());
         assertEquals("Pancakes", response.getRecipes().get(0).getName());
-        verify(recipeFilterRepository, times(1)).findByDynamicFilters(eq(recipeType), eq(servings), eq(includeIngredients), any(), eq(searchInstructions));
+        verify(recipeFilterRepository, times(1)).findIdsByDynamicFilters(eq(recipeType), eq(servings), eq(includeIngredients), any(), any(), eq(searchInstructions), any(), any(), any());
     }
 
     @Test
     void testFilterRecipesWithoutAnyConditions() {
         // Mock repository response for an empty filter
-        when(recipeFilterRepository.findByDynamicFilters(
-                any(), any(), any(), any(), any()
-        )).thenReturn(List.of(sampleRecipe));
-
-        // Mock ModelMapper behavior for converting Recipe to RecipeResponseDTO
-        when(modelMapper.map(any(Recipe.class), eq(RecipeResponseDT0.class))).thenReturn(sampleRecipeResponseDTO);
+        when(recipeFilterRepository.findIdsByDynamicFilters(
+                any(), any(), any(), any(), any(), any()
+        , any(), any(), any())).thenReturn(List.of(1L));
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
 
         RecipeResponse response = searchService.filterRecipes(null, null, null, null, null);
 
         assertEquals(1, response.getRecipes().size());
         assertEquals("Pancakes", response.getRecipes().get(0).getName());
-        verify(recipeFilterRepository, times(1)).findByDynamicFilters(any(), any(), any(), any(), any());
+        verify(recipeFilterRepository, times(1)).findIdsByDynamicFilters(any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testFilterRecipesUsesIndex_WhenIndexReady() {
+        List<String> includeIngredients = List.of("flour");
+        List<String> excludeIngredients = List.of("onion");
+
+        when(recipeIndex.isReady()).thenReturn(true);
+        when(recipeIndex.page(RecipeType.VEGETARIAN, 2, includeIngredients, IncludeMode.ANY, excludeIngredients, null, null, null)).thenReturn(new RecipeIndex.Page(List.of(1L), 1));
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
+
+        RecipeResponse response = searchService.filterRecipes(RecipeType.VEGETARIAN, 2, includeIngredients,
+                excludeIngredients, null);
+
+        assertEquals(1, response.getRecipes().size());
+        verify(recipeFilterRepository, never()).findIdsByDynamicFilters(any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testFilterRecipesByInstructionsUsesDatabase_WhenFullTextIndexNotReady() {
+        when(recipeIndex.isReady()).thenReturn(true);
+        when(recipeFilterRepository.findIdsByDynamicFilters(any(), any(), any(), any(), any(), eq("cook"), any(), any(), any())).thenReturn(List.of(1L));
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
+
+        RecipeResponse response = searchService.filterRecipes(null, null, null, null, "cook");
+
+        assertEquals(1, response.getRecipes().size());
+        verify(recipeIndex, never()).filter(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testFilterRecipesByInstructionsReturnsRelevanceOrder_WhenFullTextIndexReady() {
+        Recipe otherRecipe = new Recipe(2L, "Mixed salad", RecipeType.VEGAN, 2, new ArrayList<>(), "Mix",
+                LocalDateTime.now(), LocalDateTime.now(), null);
+
+        when(recipeIndex.isReady()).thenReturn(true);
+        when(fullTextIndex.isReady()).thenReturn(true);
+        when(fullTextIndex.search("mix")).thenReturn(Optional.of(List.of(2L, 1L)));
+        when(recipeIndex.filter(null, 2, null, IncludeMode.ANY, null)).thenReturn(List.of(1L, 2L));
+        when(recipeFilterRepository.findResponsesByIds(List.of(2L, 1L)))
+                .thenReturn(recipeMapper.toResponses(List.of(sampleRecipe, otherRecipe)));
+
+        RecipeResponse response = searchService.filterRecipes(null, 2, null, null, "mix");
+
+        assertEquals(2, response.getRecipes().size());
+        assertEquals("Mixed salad", response.getRecipes().get(0).getName());
+        assertEquals("Pancakes", response.getRecipes().get(1).getName());
+        verify(recipeFilterRepository, never()).findIdsByDynamicFilters(any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testFilterRecipesServedFromCache_WhenSameNormalisedFiltersRepeated() {
+        when(recipeIndex.isReady()).thenReturn(true);
+        when(recipeIndex.page(any(), any(), any(), any(), any(), any(), any(), any())).thenReturn(new RecipeIndex.Page(List.of(1L), 1));
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
+
+        searchService.filterRecipes(RecipeType.VEGAN, 2, List.of("Milk", "flour"), null, null);
+        RecipeResponse response = searchService.filterRecipes(RecipeType.VEGAN, 2, List.of("flour", "milk"), List.of(), null);
+
+        assertEquals("Pancakes", response.getRecipes().get(0).getName());
+        verify(recipeIndex, times(1)).page(any(), any(), any(), any(), any(), any(), any(), any());
+        verify(recipeFilterRepository, times(1)).findResponsesByIds(any());
+    }
+
+    @Test
+    void testFilterRecipesRecomputed_AfterWriteInvalidatesCache() {
+        when(recipeIndex.isReady()).thenReturn(true);
+        when(recipeIndex.page(any(), any(), any(), any(), any(), any(), any(), any())).thenReturn(new RecipeIndex.Page(List.of(1L), 1));
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
+
+        searchService.filterRecipes(RecipeType.VEGAN, null, null, null, null);
+        searchResultCache.invalidateAll();
+        searchService.filterRecipes(RecipeType.VEGAN, null, null, null, null);
+
+        verify(recipeIndex, times(2)).page(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testFilterRecipesTimed_WithFiltersPresentAndSource() {
+        when(recipeIndex.isReady()).thenReturn(true);
+        when(recipeIndex.page(RecipeType.VEGAN, null, List.of("flour"), IncludeMode.ANY, null, null, null, null)).thenReturn(new RecipeIndex.Page(List.of(1L), 1));
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
+
+        searchService.filterRecipes(RecipeType.VEGAN, null, List.of("flour"), null, null);
+        searchService.filterRecipes(RecipeType.VEGAN, null, List.of("flour"), null, null);
+
+        assertNotNull(meterRegistry.find("recipe.search").tag("recipeType", "true").tag("servings", "false")
+                .tag("includeIngredients", "true").tag("source", "index").timer());
+        assertEquals(1, meterRegistry.find("recipe.search").tag("source", "cache").timer().count());
+    }
+
+    @Test
+    void testFilterRecipesSortedAndLimited_LoadsOnlyTopRecipes() {
+        Recipe otherRecipe = new Recipe(2L, "Apple pie", RecipeType.VEGAN, 4, new ArrayList<>(), "Bake",
+                LocalDateTime.now(), LocalDateTime.now(), null);
+
+        when(recipeIndex.isReady()).thenReturn(true);
+        when(recipeIndex.page(RecipeType.VEGAN, null, null, IncludeMode.ANY, null, RecipeSort.NAME, null, 2)).thenReturn(new RecipeIndex.Page(List.of(2L, 1L), 7));
+        when(recipeFilterRepository.findResponsesByIds(List.of(2L, 1L)))
+                .thenReturn(recipeMapper.toResponses(List.of(sampleRecipe, otherRecipe)));
+
+        RecipeResponse response = searchService.filterRecipes(RecipeType.VEGAN, null, null, null, null, null,
+                RecipeSort.NAME, null, 2);
+        searchService.filterRecipes(RecipeType.VEGAN, null, null, null, null, null, RecipeSort.NAME, Sort.Direction.ASC, 2);
+
+        assertEquals(List.of("Apple pie", "Pancakes"), response.getRecipes().stream().map(recipe -> recipe.getName()).toList());
+        assertEquals(7, response.getTotalRecipes()); // every match, not only the ones returned
+        // The default direction of a sort shares its cache entry with the explicit one
+        verify(recipeIndex, times(1)).page(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testFilterRecipesByInstructions_SortsRankedMatchesWithIndex_WhenSortGiven() {
+        when(recipeIndex.isReady()).thenReturn(true);
+        when(fullTextIndex.isReady()).thenReturn(true);
+        when(fullTextIndex.search("mix")).thenReturn(Optional.of(List.of(2L, 1L)));
+        when(recipeIndex.top(List.of(2L, 1L), List.of("milk"), RecipeSort.BEST_MATCH, null, 1)).thenReturn(List.of(1L));
+        when(recipeIndex.filter(null, null, List.of("milk"), IncludeMode.ANY, null)).thenReturn(List.of(1L, 2L));
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
+
+        RecipeResponse response = searchService.filterRecipes(null, null, List.of("milk"), null, null, "mix",
+                RecipeSort.BEST_MATCH, null, 1);
+
+        assertEquals("Pancakes", response.getRecipes().get(0).getName());
+        assertEquals(2, response.getTotalRecipes());
+    }
+
+    @Test
+    void testFilterRecipesLimitedFromDatabase_CountsEveryMatch() {
+        when(recipeFilterRepository.findIdsByDynamicFilters(RecipeType.VEGAN, null, null, IncludeMode.ANY, null, null,
+                RecipeSort.NAME, null, 1)).thenReturn(List.of(1L));
+        when(recipeFilterRepository.countByDynamicFilters(RecipeType.VEGAN, null, null, IncludeMode.ANY, null, null))
+                .thenReturn(3L);
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
+
+        RecipeResponse response = searchService.filterRecipes(RecipeType.VEGAN, null, null, null, null, null,
+                RecipeSort.NAME, null, 1);
+        RecipeResponse cached = searchService.filterRecipes(RecipeType.VEGAN, null, null, null, null, null,
+                RecipeSort.NAME, null, 1);
+
+        assertEquals(1, response.getRecipes().size());
+        assertEquals(3, response.getTotalRecipes());
+        assertEquals(3, cached.getTotalRecipes());
+        verify(recipeFilterRepository, times(1)).findIdsByDynamicFilters(any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testFilterRecipes_ShouldThrowInvalidInputException_WhenLimitOutOfRange() {
+        assertThrows(InvalidInputException.class,
+                () -> searchService.filterRecipes(null, null, null, null, null, null, null, null, 0));
+        assertThrows(InvalidInputException.class, () -> searchService.filterRecipes(null, null, null, null, null, null,
+                RecipeSort.NAME, null, SearchService.MAX_SEARCH_LIMIT + 1));
+    }
+
+    @Test
+    void testFindPantryMatches_ReturnsCoverageAndMissingIngredients() {
+        List<String> pantry = List.of("Flour", "eggs");
+        when(recipeIndex.isReady()).thenReturn(true);
+        when(recipeIndex.pantry(pantry, 1, 10)).thenReturn(List.of(1L));
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
+
+        PantryResponse response = searchService.findPantryMatches(pantry, 1, 10);
+
+        assertEquals(1, response.getTotalMatches());
+        PantryMatchDTO match = response.getMatches().get(0);
+        assertEquals("Pancakes", match.getRecipe().getName());
+        assertEquals(0.5, match.getCoverage());
+        assertEquals(List.of("milk"), match.getMissingIngredients());
+        verify(recipeFilterRepository, never()).findIdsByPantry(any(), anyInt(), any());
+    }
+
+    @Test
+    void testFindPantryMatches_FallsBackToDatabase_WhenIndexNotReady() {
+        when(recipeIndex.isReady()).thenReturn(false);
+        when(recipeFilterRepository.findIdsByPantry(List.of("flour", "milk"), 0, null)).thenReturn(List.of(1L));
+        when(recipeFilterRepository.findResponsesByIds(List.of(1L))).thenReturn(List.of(recipeMapper.toResponse(sampleRecipe)));
+
+        PantryResponse response = searchService.findPantryMatches(List.of("flour", "milk"), 0, null);
+
+        assertEquals(1.0, response.getMatches().get(0).getCoverage());
+        assertEquals(List.of(), response.getMatches().get(0).getMissingIngredients());
+    }
+
+    @Test
+    void testFindPantryMatches_ShouldThrowInvalidInputException_WhenInputOutOfRange() {
+        assertThrows(InvalidInputException.class, () -> searchService.findPantryMatches(List.of(" "), 0, null));
+        assertThrows(InvalidInputException.class, () -> searchService.findPantryMatches(List.of("flour"),
+                SearchService.MAX_PANTRY_MISSING + 1, null));
+        assertThrows(InvalidInputException.class, () -> searchService.findPantryMatches(List.of("flour"), 0, 0));
     }
 }